@@ -2,8 +2,10 @@ package com.anto.authservice;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
 
-@SpringBootApplication
+// an R2DBC ConnectionFactory bean would turn off the JDBC DataSource JPA runs on, the reactive profile builds its own
+@SpringBootApplication(exclude = R2dbcAutoConfiguration.class)
 public class Application {
 
     public static void main(String[] args) {
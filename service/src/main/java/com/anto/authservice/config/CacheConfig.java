@@ -0,0 +1,52 @@
+package com.anto.authservice.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.Locale;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String USER_CACHE = "users";
+    public static final String UNKNOWN_USER_CACHE = "unknownUsers";
+
+    @Bean
+    public CacheManager cacheManager(
+            @Value("${app.cache.users.maximumSize}") long usersMaximumSize,
+            @Value("${app.cache.users.ttlMs}") long usersTtlMs,
+            @Value("${app.cache.unknownUsers.maximumSize}") long unknownUsersMaximumSize,
+            @Value("${app.cache.unknownUsers.ttlMs}") long unknownUsersTtlMs) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+
+        // recordStats() feeds the cache.gets/cache.evictions meters published on /actuator/metrics
+        cacheManager.registerCustomCache(USER_CACHE, Caffeine.newBuilder()
+                .maximumSize(usersMaximumSize)
+                .expireAfterWrite(Duration.ofMillis(usersTtlMs))
+                .recordStats()
+                .build());
+        // usernames with no user, kept briefly so repeated signins with them do not each query the database
+        cacheManager.registerCustomCache(UNKNOWN_USER_CACHE, Caffeine.newBuilder()
+                .maximumSize(unknownUsersMaximumSize)
+                .expireAfterWrite(Duration.ofMillis(unknownUsersTtlMs))
+                .recordStats()
+                .build());
+
+        return cacheManager;
+    }
+
+    /**
+     * The key of a username in the user caches. MySQL matches usernames case-insensitively, so every casing of a
+     * username shares one entry and one eviction.
+     */
+    public static String userKey(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,43 @@
+package com.anto.authservice.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs every servlet request on its own virtual thread instead of Tomcat's pool of 200 platform threads, so requests
+ * blocked on JDBC no longer hold a platform thread each. Requires Java 21 (build with the java21 Maven profile).
+ * <p>
+ * Concurrency is then bounded by the Hikari pool rather than by the thread count, see application-virtual.yml.
+ * Bcrypt stays on the {@link com.anto.authservice.service.PasswordHashingExecutor} platform pool: it is CPU bound and
+ * would only compete with the carrier threads.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.virtualThreads", havingValue = "true")
+@Slf4j
+public class VirtualThreadsConfig {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        ExecutorService executor = newVirtualThreadPerTaskExecutor();
+        log.info("Handling requests on virtual threads");
+
+        return protocolHandler -> protocolHandler.setExecutor(executor);
+    }
+
+    // looked up reflectively so the sources still compile for Java 17
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("app.virtualThreads needs Java 21, running on " + Runtime.version());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create the virtual thread executor", e);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.anto.authservice.controller;
+
+import com.anto.authservice.model.payload.request.UpdateRolesRequest;
+import com.anto.authservice.service.AuthService;
+import com.anto.authservice.service.UserImportService;
+import com.anto.authservice.service.UserListingService;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RequestMapping("/api/admin")
+@PreAuthorize("hasRole('ADMIN')")
+@RequiredArgsConstructor
+public class AdminController {
+
+    private final AuthService authService;
+    private final UserImportService userImportService;
+    private final UserListingService userListingService;
+
+    /**
+     * A page of users in id order; pass the nextAfter of a page as after to get the next one.
+     */
+    @GetMapping("/users")
+    public ResponseEntity<?> listUsers(@RequestParam(defaultValue = "0") long after,
+                                       @RequestParam(defaultValue = "100") int limit,
+                                       @RequestParam(required = false) String username) {
+        return ResponseEntity.ok(userListingService.page(after, limit, username));
+    }
+
+    /**
+     * Every user as NDJSON, written on this request thread while it is read, so a dump of millions of users is not
+     * cut off by the async request timeout.
+     */
+    @GetMapping(value = "/users/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void exportUsers(HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        userListingService.export(response.getOutputStream());
+    }
+
+    @PutMapping("/users/{username}/roles")
+    public ResponseEntity<?> updateRoles(@PathVariable String username, @Valid @RequestBody UpdateRolesRequest updateRolesRequest) {
+        return ResponseEntity.ok(authService.updateRoles(username, updateRolesRequest));
+    }
+
+    @PostMapping("/roles/reload")
+    public ResponseEntity<?> reloadRoles() {
+        return ResponseEntity.ok(authService.reloadRoles());
+    }
+
+    /**
+     * One signup payload per line; the body is streamed, so a file of any size is never held in memory.
+     */
+    @PostMapping(value = "/users/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<?> importUsers(InputStream body) throws IOException {
+        return ResponseEntity.ok(userImportService.importUsers(body));
+    }
+}
@@ -1,33 +1,44 @@
 package com.anto.authservice.controller;
 
 import com.anto.authservice.model.payload.request.LoginRequest;
+import com.anto.authservice.model.payload.request.SignoutRequest;
 import com.anto.authservice.model.payload.request.SignupRequest;
+import com.anto.authservice.model.payload.request.TokenIntrospectionRequest;
 import com.anto.authservice.model.payload.request.TokenRefreshRequest;
 import com.anto.authservice.service.AuthService;
+import com.anto.authservice.service.TokenIntrospectionService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.concurrent.CompletableFuture;
+
 @CrossOrigin(origins = "*", maxAge = 3600)
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/api/auth")
 @RequiredArgsConstructor
 @Slf4j
 public class AuthController {
 
     private final AuthService authService;
+    private final TokenIntrospectionService tokenIntrospectionService;
 
     @PostMapping("/signin")
-    public ResponseEntity<?> authenticateUser(@Valid @RequestBody LoginRequest loginRequest) {
+    public CompletableFuture<ResponseEntity<?>> authenticateUser(@Valid @RequestBody LoginRequest loginRequest,
+                                                                 HttpServletRequest request) {
         log.info("Sign in request!");
-        return ResponseEntity.ok(authService.signin(loginRequest));
+        return authService.signin(loginRequest, request.getRemoteAddr()).thenApply(ResponseEntity::ok);
     }
 
     @PostMapping("/signup")
-    public ResponseEntity<?> registerUser(@Valid @RequestBody SignupRequest signUpRequest) {
-        return ResponseEntity.ok(authService.signup(signUpRequest));
+    public CompletableFuture<ResponseEntity<?>> registerUser(@Valid @RequestBody SignupRequest signUpRequest) {
+        return authService.signup(signUpRequest).thenApply(ResponseEntity::ok);
     }
 
     @PostMapping("/refreshtoken")
@@ -35,4 +46,15 @@ public class AuthController {
         log.info("Refresh token request!");
         return ResponseEntity.ok(authService.refreshToken(tokenRefreshRequest));
     }
+
+    @PostMapping("/signout")
+    public ResponseEntity<?> logoutUser(@RequestHeader(HttpHeaders.AUTHORIZATION) String authorization,
+                                        @Valid @RequestBody(required = false) SignoutRequest signoutRequest) {
+        return ResponseEntity.ok(authService.signout(authorization, signoutRequest));
+    }
+
+    @PostMapping("/introspect/batch")
+    public CompletableFuture<ResponseEntity<?>> introspectTokens(@Valid @RequestBody TokenIntrospectionRequest introspectionRequest) {
+        return tokenIntrospectionService.introspect(introspectionRequest.getTokens()).thenApply(ResponseEntity::ok);
+    }
 }
\ No newline at end of file
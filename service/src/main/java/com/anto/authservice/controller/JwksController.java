@@ -0,0 +1,35 @@
+package com.anto.authservice.controller;
+
+import com.anto.authservice.security.jwt.JwtKeyProvider;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequiredArgsConstructor
+public class JwksController {
+
+    private final JwtKeyProvider keyProvider;
+
+    @Value("${app.jwt.jwksMaxAgeMs}")
+    private Long jwksMaxAgeMs;
+
+    // If-None-Match is answered with 304 by Spring since the response carries an ETag
+    @GetMapping(value = "/.well-known/jwks.json", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<String> jwks() {
+        JwtKeyProvider.JwksDocument jwks = keyProvider.getJwksDocument();
+
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(Duration.ofMillis(jwksMaxAgeMs)).cachePublic())
+                .eTag(jwks.etag())
+                .body(jwks.json());
+    }
+}
@@ -0,0 +1,66 @@
+package com.anto.authservice.controller;
+
+import com.anto.authservice.model.payload.request.LoginRequest;
+import com.anto.authservice.model.payload.request.SignoutRequest;
+import com.anto.authservice.model.payload.request.SignupRequest;
+import com.anto.authservice.model.payload.request.TokenIntrospectionRequest;
+import com.anto.authservice.model.payload.request.TokenRefreshRequest;
+import com.anto.authservice.security.ratelimit.ReactiveClientAddressResolver;
+import com.anto.authservice.service.ReactiveAuthService;
+import com.anto.authservice.service.TokenIntrospectionService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link AuthController} for the reactive profile, same paths and payloads.
+ */
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequestMapping("/api/auth")
+@RequiredArgsConstructor
+@Slf4j
+public class ReactiveAuthController {
+
+    private final ReactiveAuthService authService;
+    private final TokenIntrospectionService tokenIntrospectionService;
+    private final ReactiveClientAddressResolver clientAddressResolver;
+
+    @PostMapping("/signin")
+    public Mono<ResponseEntity<?>> authenticateUser(@Valid @RequestBody LoginRequest loginRequest,
+                                                    ServerHttpRequest request) {
+        log.info("Sign in request!");
+        return authService.signin(loginRequest, clientAddressResolver.resolve(request)).map(ResponseEntity::ok);
+    }
+
+    @PostMapping("/signup")
+    public Mono<ResponseEntity<?>> registerUser(@Valid @RequestBody SignupRequest signUpRequest) {
+        return authService.signup(signUpRequest).map(ResponseEntity::ok);
+    }
+
+    @PostMapping("/refreshtoken")
+    public Mono<ResponseEntity<?>> refreshToken(@Valid @RequestBody TokenRefreshRequest tokenRefreshRequest) {
+        log.info("Refresh token request!");
+        return authService.refreshToken(tokenRefreshRequest).map(ResponseEntity::ok);
+    }
+
+    @PostMapping("/signout")
+    public Mono<ResponseEntity<?>> logoutUser(@RequestHeader(HttpHeaders.AUTHORIZATION) String authorization,
+                                              @Valid @RequestBody(required = false) SignoutRequest signoutRequest) {
+        return authService.signout(authorization, signoutRequest).map(ResponseEntity::ok);
+    }
+
+    @PostMapping("/introspect/batch")
+    public Mono<ResponseEntity<?>> introspectTokens(@Valid @RequestBody TokenIntrospectionRequest introspectionRequest) {
+        // verified on the introspection pool, a revocation filter hit is confirmed with a blocking lookup
+        return Mono.fromFuture(() -> tokenIntrospectionService.introspect(introspectionRequest.getTokens()))
+                .map(ResponseEntity::ok);
+    }
+}
@@ -4,14 +4,16 @@ import com.anto.authservice.model.payload.response.ErrorResponse;
 import com.google.gson.Gson;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
-import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.bind.support.WebExchangeBindException;
 
 import java.time.Instant;
 import java.util.Date;
@@ -24,14 +26,24 @@ public class ControllerExceptionHandler {
 
     @ExceptionHandler({ApiException.class, IllegalArgumentException.class})
     @ResponseStatus(value = HttpStatus.BAD_REQUEST)
-    public ErrorResponse handleServiceException(RuntimeException ex, WebRequest request) {
+    public ErrorResponse handleServiceException(RuntimeException ex) {
         return new ErrorResponse(ex.getMessage(), Date.from(Instant.now()));
     }
 
     @ExceptionHandler(MethodArgumentNotValidException.class)
     @ResponseStatus(value = HttpStatus.BAD_REQUEST)
-    public ErrorResponse handleMethodArgumentNotValidException(MethodArgumentNotValidException ex, WebRequest request) {
-        BindingResult result = ex.getBindingResult();
+    public ErrorResponse handleMethodArgumentNotValidException(MethodArgumentNotValidException ex) {
+        return fieldErrorResponse(ex.getBindingResult());
+    }
+
+    // the reactive stack reports invalid request bodies with its own exception
+    @ExceptionHandler(WebExchangeBindException.class)
+    @ResponseStatus(value = HttpStatus.BAD_REQUEST)
+    public ErrorResponse handleWebExchangeBindException(WebExchangeBindException ex) {
+        return fieldErrorResponse(ex.getBindingResult());
+    }
+
+    private static ErrorResponse fieldErrorResponse(BindingResult result) {
         Gson gson = new Gson();
         List<String> fieldErrors = result.getFieldErrors().stream()
                 .map(f -> gson.toJson(new CustomFieldError(f.getField(), Optional.ofNullable(f.getDefaultMessage()).orElse(""))))
@@ -42,10 +54,24 @@ public class ControllerExceptionHandler {
 
     @ExceptionHandler(TokenRefreshException.class)
     @ResponseStatus(value = HttpStatus.FORBIDDEN)
-    public ErrorResponse handleTokenRefreshException(TokenRefreshException ex, WebRequest request) {
+    public ErrorResponse handleTokenRefreshException(TokenRefreshException ex) {
         return new ErrorResponse(ex.getMessage(), Date.from(Instant.now()));
     }
 
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<ErrorResponse> handleServiceOverloadedException(ServiceOverloadedException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(new ErrorResponse(ex.getMessage(), Date.from(Instant.now())));
+    }
+
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<ErrorResponse> handleTooManyRequestsException(TooManyRequestsException ex) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(new ErrorResponse(ex.getMessage(), Date.from(Instant.now())));
+    }
+
     @AllArgsConstructor
     @Getter
     private static class CustomFieldError {
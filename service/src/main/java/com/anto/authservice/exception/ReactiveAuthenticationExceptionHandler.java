@@ -0,0 +1,27 @@
+package com.anto.authservice.exception;
+
+import com.anto.authservice.security.jwt.ReactiveAuthEntryPointJwt;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * A failed signin reaches the servlet entry point through the security filter chain; the reactive chain only
+ * translates access denials, so failed signins are answered here with the same body.
+ */
+@ControllerAdvice
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+public class ReactiveAuthenticationExceptionHandler {
+
+    private final ReactiveAuthEntryPointJwt unauthorizedHandler;
+
+    @ExceptionHandler(AuthenticationException.class)
+    public Mono<Void> handleAuthenticationException(AuthenticationException ex, ServerWebExchange exchange) {
+        return unauthorizedHandler.commence(exchange, ex);
+    }
+}
@@ -0,0 +1,47 @@
+package com.anto.authservice.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * A timer per value of one tag (an outcome or an operation), all registered up front so that recording on a hot path
+ * is a map lookup and {@link System#nanoTime()}, without building meter ids or allocating a sample.
+ */
+public class TaggedTimers {
+
+    private final Map<String, Timer> timers = new HashMap<>();
+
+    public TaggedTimers(MeterRegistry meterRegistry, String name, String description, String tag, String... values) {
+        for (String value : values) {
+            timers.put(value, Timer.builder(name)
+                    .description(description)
+                    .tag(tag, value)
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * @param startNanos {@link System#nanoTime()} taken when the timed call started
+     */
+    public void record(String value, long startNanos) {
+        Timer timer = timers.get(value);
+        if (timer == null) {
+            throw new IllegalArgumentException("Unknown timer tag value: " + value);
+        }
+        timer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public <T> T record(String value, Supplier<T> call) {
+        long start = System.nanoTime();
+        try {
+            return call.get();
+        } finally {
+            record(value, start);
+        }
+    }
+}
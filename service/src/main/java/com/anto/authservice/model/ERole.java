@@ -1,16 +1,25 @@
 package com.anto.authservice.model;
 
 import lombok.Getter;
-import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 
-@RequiredArgsConstructor
 @Getter
 public enum ERole {
     ROLE_USER("user"),
     ROLE_MODERATOR("mod"),
-    ROLE_ADMIN("admin");
+    ROLE_ADMIN("admin"),
+    // services such as an API gateway that introspect access tokens on behalf of their clients
+    ROLE_GATEWAY("gateway");
 
     private final String roleString;
+    // shared by every principal holding the role, instead of a new authority per user load or token
+    private final GrantedAuthority authority;
+
+    ERole(String roleString) {
+        this.roleString = roleString;
+        this.authority = new SimpleGrantedAuthority(name());
+    }
 
     public static ERole fromString(String role) {
         for (ERole eRole : ERole.values()) {
@@ -20,4 +29,17 @@ public enum ERole {
         }
         throw new IllegalArgumentException("Invalid role: " + role);
     }
-}
\ No newline at end of file
+
+    /**
+     * The shared authority for a role name as stored in the roles table or a token's roles claim, or a new one for a
+     * name that is not a known role.
+     */
+    public static GrantedAuthority authorityOf(String name) {
+        for (ERole eRole : ERole.values()) {
+            if (eRole.name().equals(name)) {
+                return eRole.getAuthority();
+            }
+        }
+        return new SimpleGrantedAuthority(name);
+    }
+}
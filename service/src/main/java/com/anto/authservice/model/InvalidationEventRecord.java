@@ -0,0 +1,50 @@
+package com.anto.authservice.model;
+
+import com.anto.authservice.service.invalidation.InvalidationEvent;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * An {@link InvalidationEvent} as written to the shared table. Ids only grow, so every instance reads the events
+ * after the last id it applied.
+ */
+@NoArgsConstructor
+@Getter
+@Entity(name = "invalidationevent")
+@Table(indexes = @Index(name = "idx_invalidationevent_created_at", columnList = "createdAt"))
+public class InvalidationEventRecord {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private InvalidationEvent.Type type;
+
+    @Column(name = "event_key", nullable = false)
+    private String key;
+
+    private Instant expiryDate;
+
+    // the instance that published the event and applied it already
+    @Column(nullable = false, length = 36)
+    private String origin;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    public InvalidationEventRecord(InvalidationEvent event, String origin, Instant createdAt) {
+        this.type = event.type();
+        this.key = event.key();
+        this.expiryDate = event.expiryDate();
+        this.origin = origin;
+        this.createdAt = createdAt;
+    }
+
+    public InvalidationEvent toEvent() {
+        return new InvalidationEvent(type, key, expiryDate);
+    }
+}
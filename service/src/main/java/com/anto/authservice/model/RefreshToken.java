@@ -7,21 +7,39 @@ import lombok.Setter;
 
 import java.time.Instant;
 
+/**
+ * A signin session (token family) with its current refresh token. Every refresh replaces the token and
+ * increments the generation, presenting a token of an older generation revokes the family.
+ */
 @NoArgsConstructor
 @Getter
 @Setter
 @Entity(name = "refreshtoken")
+@Table(indexes = {
+        @Index(name = "idx_refreshtoken_expiry_date", columnList = "expiryDate"),
+        @Index(name = "idx_refreshtoken_user_id", columnList = "user_id")
+})
 public class RefreshToken {
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private long id;
 
-    @OneToOne
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @JoinColumn(name = "user_id", referencedColumnName = "id")
     private User user;
 
-    @Column(nullable = false, unique = true)
-    private String token;
+    @Column(name = "family_id", nullable = false, unique = true, columnDefinition = "binary(16)")
+    private byte[] familyId;
+
+    @Column(nullable = false)
+    private int generation;
+
+    @Column(nullable = false)
+    private boolean revoked;
+
+    // SHA-256 of the current token handed to the client
+    @Column(name = "token_hash", nullable = false, unique = true, columnDefinition = "binary(32)")
+    private byte[] tokenHash;
 
     @Column(nullable = false)
     private Instant expiryDate;
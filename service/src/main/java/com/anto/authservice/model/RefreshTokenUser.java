@@ -0,0 +1,11 @@
+package com.anto.authservice.model;
+
+import java.time.Instant;
+
+/**
+ * One row of the refresh token lookup: the session the token belongs to and its owner with one of its roles
+ * (null when it has none).
+ */
+public record RefreshTokenUser(Long userId, String username, String email, ERole role,
+                               byte[] familyId, int generation, boolean revoked, Instant expiryDate) {
+}
@@ -0,0 +1,25 @@
+package com.anto.authservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * An access token revoked before its expiry, identified by its jti claim. Kept until the token would have expired.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Entity(name = "revokedtoken")
+@Table(indexes = @Index(name = "idx_revokedtoken_expiry_date", columnList = "expiryDate"))
+public class RevokedToken {
+    @Id
+    @Column(length = 36)
+    private String jti;
+
+    @Column(nullable = false)
+    private Instant expiryDate;
+}
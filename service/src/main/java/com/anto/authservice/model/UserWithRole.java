@@ -0,0 +1,7 @@
+package com.anto.authservice.model;
+
+/**
+ * One row of a user listing: a user with one of its roles (null when it has none).
+ */
+public record UserWithRole(Long id, String username, String email, ERole role) {
+}
@@ -0,0 +1,11 @@
+package com.anto.authservice.model.payload.request;
+
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+@Data
+public class SignoutRequest {
+    // optional, ends the refresh token session of this signin as well
+    @Size(min = 36, max = 96)
+    private String refreshToken;
+}
@@ -0,0 +1,14 @@
+package com.anto.authservice.model.payload.request;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class TokenIntrospectionRequest {
+    // access tokens without the "Bearer " prefix, at most app.introspection.maxBatchSize
+    @NotEmpty
+    private List<@NotBlank String> tokens;
+}
@@ -7,6 +7,6 @@ import lombok.Data;
 @Data
 public class TokenRefreshRequest {
     @NotBlank
-    @Size(min = 36, max = 36)
+    @Size(min = 36, max = 96)
     private String refreshToken;
 }
\ No newline at end of file
@@ -0,0 +1,12 @@
+package com.anto.authservice.model.payload.request;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Data;
+
+import java.util.Set;
+
+@Data
+public class UpdateRolesRequest {
+    @NotEmpty
+    private Set<String> roles;
+}
@@ -0,0 +1,21 @@
+package com.anto.authservice.model.payload.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TokenIntrospection {
+    // shared by every token that is not active, nothing else is disclosed about those
+    public static final TokenIntrospection INACTIVE = new TokenIntrospection(false, null, null, null);
+
+    private final boolean active;
+    private final String subject;
+    private final List<String> roles;
+    // seconds since the epoch, as in the exp claim
+    private final Long expiresAt;
+}
@@ -0,0 +1,13 @@
+package com.anto.authservice.model.payload.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class TokenIntrospectionResponse {
+    // in the order of the requested tokens
+    private List<TokenIntrospection> tokens;
+}
@@ -0,0 +1,16 @@
+package com.anto.authservice.model.payload.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserImportError {
+    // 1-based line number in the imported file
+    private final long line;
+    // null when the line could not be read
+    private final String username;
+    private final String message;
+}
@@ -0,0 +1,15 @@
+package com.anto.authservice.model.payload.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class UserImportResponse {
+    private final int imported;
+    private final int failed;
+    // in line order
+    private final List<UserImportError> errors;
+}
@@ -0,0 +1,17 @@
+package com.anto.authservice.model.payload.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserPageResponse {
+    // in id order
+    private final List<UserSummary> users;
+    // the after parameter of the next page, null on the last one
+    private final Long nextAfter;
+}
@@ -0,0 +1,15 @@
+package com.anto.authservice.model.payload.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class UserSummary {
+    private final Long id;
+    private final String username;
+    private final String email;
+    private final List<String> roles;
+}
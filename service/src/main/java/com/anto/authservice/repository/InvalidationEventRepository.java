@@ -0,0 +1,31 @@
+package com.anto.authservice.repository;
+
+import com.anto.authservice.model.InvalidationEventRecord;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface InvalidationEventRepository extends JpaRepository<InvalidationEventRecord, Long> {
+
+    /**
+     * The next events after the given id, a range scan of the primary key.
+     */
+    @Query("select e from invalidationevent e where e.id > :id order by e.id")
+    List<InvalidationEventRecord> findAfter(@Param("id") long id, Pageable pageable);
+
+    @Query("select max(e.id) from invalidationevent e where e.createdAt < :before")
+    Long findMaxIdCreatedBefore(@Param("before") Instant before);
+
+    @Transactional
+    @Modifying
+    @Query("delete from invalidationevent e where e.createdAt < :before")
+    int deleteCreatedBefore(@Param("before") Instant before);
+}
@@ -0,0 +1,108 @@
+package com.anto.authservice.repository;
+
+import com.anto.authservice.model.ERole;
+import com.anto.authservice.model.RefreshTokenUser;
+import com.anto.authservice.service.token.RefreshTokenEntry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+/**
+ * The non-blocking counterpart of {@link RefreshTokenRepository} for the reactive profile, with the same statements.
+ */
+@Repository
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+public class ReactiveRefreshTokenRepository {
+
+    private final DatabaseClient databaseClient;
+
+    public Mono<Long> insert(RefreshTokenEntry entry) {
+        return databaseClient.sql("insert into refreshtoken (user_id, family_id, generation, revoked, token_hash, expiry_date) " +
+                        "values (:userId, :familyId, :generation, false, :tokenHash, :expiryDate)")
+                .bind("userId", entry.userId())
+                .bind("familyId", entry.familyId())
+                .bind("generation", entry.generation())
+                .bind("tokenHash", entry.tokenHash())
+                // Hibernate keeps Instant columns in UTC
+                .bind("expiryDate", LocalDateTime.ofInstant(entry.expiryDate(), ZoneOffset.UTC))
+                .fetch()
+                .rowsUpdated();
+    }
+
+    /**
+     * Resolves a token hash to its session and user with roles in a single statement over the unique token_hash index,
+     * one row per role.
+     */
+    public Flux<RefreshTokenUser> findUserByTokenHash(byte[] tokenHash) {
+        return databaseClient.sql("select u.id, u.username, u.email, r.name as role, " +
+                        "t.family_id, t.generation, t.revoked, t.expiry_date from refreshtoken t " +
+                        "join users u on u.id = t.user_id left join user_roles ur on ur.user_id = u.id " +
+                        "left join roles r on r.id = ur.role_id where t.token_hash = :tokenHash")
+                .bind("tokenHash", tokenHash)
+                .map(row -> {
+                    String role = row.get("role", String.class);
+                    return new RefreshTokenUser(row.get("id", Long.class), row.get("username", String.class),
+                            row.get("email", String.class), role != null ? ERole.valueOf(role) : null,
+                            row.get("family_id", byte[].class), row.get("generation", Integer.class),
+                            Boolean.TRUE.equals(row.get("revoked", Boolean.class)), toInstant(row.get("expiry_date")));
+                })
+                .all();
+    }
+
+    /**
+     * Moves a session to its next token, only while the presented token is still its current one.
+     *
+     * @return 0 when the token was rotated or revoked in the meantime
+     */
+    public Mono<Long> rotate(byte[] tokenHash, byte[] nextTokenHash) {
+        return databaseClient.sql("update refreshtoken set token_hash = :nextTokenHash, generation = generation + 1 " +
+                        "where token_hash = :tokenHash and revoked = false")
+                .bind("tokenHash", tokenHash)
+                .bind("nextTokenHash", nextTokenHash)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    /**
+     * Revokes a session over the unique family_id index, if it has moved past the given generation.
+     */
+    public Mono<Long> revokeFamily(byte[] familyId, int generation) {
+        return databaseClient.sql("update refreshtoken set revoked = true " +
+                        "where family_id = :familyId and generation > :generation and revoked = false")
+                .bind("familyId", familyId)
+                .bind("generation", generation)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Long> deleteByTokenHash(byte[] tokenHash) {
+        return databaseClient.sql("delete from refreshtoken where token_hash = :tokenHash")
+                .bind("tokenHash", tokenHash)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    // MySQL drivers return a datetime without zone, databases with zoned timestamps an OffsetDateTime
+    private static Instant toInstant(Object value) {
+        if (value instanceof LocalDateTime dateTime) {
+            return dateTime.toInstant(ZoneOffset.UTC);
+        }
+        if (value instanceof OffsetDateTime dateTime) {
+            return dateTime.toInstant();
+        }
+        if (value instanceof ZonedDateTime dateTime) {
+            return dateTime.toInstant();
+        }
+        return (Instant) value;
+    }
+}
@@ -0,0 +1,26 @@
+package com.anto.authservice.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+/**
+ * Confirms revocation filter hits without blocking, rows are written through {@link RevokedTokenRepository}.
+ */
+@Repository
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+public class ReactiveRevokedTokenRepository {
+
+    private final DatabaseClient databaseClient;
+
+    public Mono<Boolean> existsById(String jti) {
+        return databaseClient.sql("select jti from revokedtoken where jti = :jti")
+                .bind("jti", jti)
+                .map(row -> true)
+                .first()
+                .hasElement();
+    }
+}
@@ -0,0 +1,103 @@
+package com.anto.authservice.repository;
+
+import com.anto.authservice.model.ERole;
+import com.anto.authservice.service.UserDetailsImpl;
+import io.r2dbc.spi.Readable;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The non-blocking counterpart of {@link UserRepository} for the reactive profile, over the tables mapped by JPA.
+ */
+@Repository
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+public class ReactiveUserRepository {
+
+    private final DatabaseClient databaseClient;
+
+    /**
+     * The user with its password hash and roles in a single statement, one row per role.
+     */
+    public Mono<UserDetailsImpl> findByUsername(String username) {
+        return databaseClient.sql("select u.id, u.username, u.email, u.password, r.name as role from users u " +
+                        "left join user_roles ur on ur.user_id = u.id left join roles r on r.id = ur.role_id " +
+                        "where u.username = :username")
+                .bind("username", username)
+                .map(UserRow::of)
+                .all()
+                .collectList()
+                .filter(rows -> !rows.isEmpty())
+                .map(rows -> {
+                    UserRow user = rows.get(0);
+                    List<GrantedAuthority> authorities = rows.stream()
+                            .map(UserRow::role)
+                            .filter(Objects::nonNull)
+                            .map(ERole::authorityOf)
+                            .toList();
+
+                    return new UserDetailsImpl(user.id(), user.username(), user.email(), user.password(), authorities);
+                });
+    }
+
+    /**
+     * Users holding the username or the email, at most two, in one statement over the two unique indexes.
+     */
+    public Flux<UserDetailsImpl> findByUsernameOrEmail(String username, String email) {
+        return databaseClient.sql("select id, username, email from users where username = :username or email = :email")
+                .bind("username", username)
+                .bind("email", email)
+                .map(row -> new UserDetailsImpl(row.get("id", Long.class), row.get("username", String.class),
+                        row.get("email", String.class), null, List.of()))
+                .all();
+    }
+
+    /**
+     * @return the generated id
+     */
+    public Mono<Long> insert(String username, String email, String password) {
+        return databaseClient.sql("insert into users (username, email, password) values (:username, :email, :password)")
+                .bind("username", username)
+                .bind("email", email)
+                .bind("password", password)
+                .filter(statement -> statement.returnGeneratedValues("id"))
+                .map(row -> row.get("id", Long.class))
+                .one();
+    }
+
+    /**
+     * @return the number of roles granted, fewer than requested when a role is missing from the roles table
+     */
+    public Mono<Long> insertRoles(Long userId, Collection<ERole> roles) {
+        return databaseClient.sql("insert into user_roles (user_id, role_id) select :userId, id from roles where name in (:names)")
+                .bind("userId", userId)
+                .bind("names", roles.stream().map(ERole::name).toList())
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Long> updatePassword(String username, String password) {
+        return databaseClient.sql("update users set password = :password where username = :username")
+                .bind("username", username)
+                .bind("password", password)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    private record UserRow(Long id, String username, String email, String password, String role) {
+
+        static UserRow of(Readable row) {
+            return new UserRow(row.get("id", Long.class), row.get("username", String.class),
+                    row.get("email", String.class), row.get("password", String.class), row.get("role", String.class));
+        }
+    }
+}
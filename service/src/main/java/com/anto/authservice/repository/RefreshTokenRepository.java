@@ -1,17 +1,57 @@
 package com.anto.authservice.repository;
 
 import com.anto.authservice.model.RefreshToken;
-import com.anto.authservice.model.User;
+import com.anto.authservice.model.RefreshTokenUser;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Optional;
+import java.time.Instant;
+import java.util.List;
 
 @Repository
 public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
-    Optional<RefreshToken> findByToken(String token);
+    /**
+     * Resolves a token hash to its session and user with roles in a single statement over the unique token_hash index,
+     * one row per role.
+     */
+    @Query("select new com.anto.authservice.model.RefreshTokenUser(u.id, u.username, u.email, r.name, " +
+            "t.familyId, t.generation, t.revoked, t.expiryDate) " +
+            "from refreshtoken t join t.user u left join u.roles r where t.tokenHash = :tokenHash")
+    List<RefreshTokenUser> findUserByTokenHash(@Param("tokenHash") byte[] tokenHash);
 
+    /**
+     * Moves a session to its next token, only while the presented token is still its current one.
+     *
+     * @return 0 when the token was rotated or revoked in the meantime
+     */
+    @Transactional
     @Modifying
-    int deleteByUser(User user);
-}
\ No newline at end of file
+    @Query("update refreshtoken t set t.tokenHash = :nextTokenHash, t.generation = t.generation + 1 " +
+            "where t.tokenHash = :tokenHash and t.revoked = false")
+    int rotate(@Param("tokenHash") byte[] tokenHash, @Param("nextTokenHash") byte[] nextTokenHash);
+
+    /**
+     * Revokes a session over the unique family_id index, if it has moved past the given generation.
+     */
+    @Transactional
+    @Modifying
+    @Query("update refreshtoken t set t.revoked = true " +
+            "where t.familyId = :familyId and t.generation > :generation and t.revoked = false")
+    int revokeFamily(@Param("familyId") byte[] familyId, @Param("generation") int generation);
+
+    /**
+     * Ids of expired tokens, oldest first, served by the expiryDate index.
+     */
+    @Query("select t.id from refreshtoken t where t.expiryDate < :now order by t.expiryDate")
+    List<Long> findExpiredIds(@Param("now") Instant now, Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("delete from refreshtoken t where t.tokenHash = :tokenHash")
+    int deleteByTokenHash(@Param("tokenHash") byte[] tokenHash);
+}
@@ -0,0 +1,23 @@
+package com.anto.authservice.repository;
+
+import com.anto.authservice.model.RevokedToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, String> {
+
+    List<RevokedToken> findByExpiryDateAfter(Instant now);
+
+    @Transactional
+    @Modifying
+    @Query("delete from revokedtoken t where t.expiryDate < :now")
+    int deleteExpired(@Param("now") Instant now);
+}
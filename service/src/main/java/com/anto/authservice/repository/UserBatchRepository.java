@@ -0,0 +1,69 @@
+package com.anto.authservice.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Users written many at a time with JDBC batches, for the bulk import. Hibernate cannot batch these inserts: the
+ * users id is an auto increment column, which the R2DBC signup and existing schemas rely on, and an IDENTITY id has to
+ * be read back after every single insert. With rewriteBatchedStatements on the MySQL URL a batch becomes multi-row
+ * inserts.
+ */
+@Repository
+@RequiredArgsConstructor
+public class UserBatchRepository {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * The users holding any of the usernames or emails, in one statement. A union rather than an or, so each half is
+     * a lookup in its unique index on every database.
+     */
+    public List<ExistingUser> findByUsernameInOrEmailIn(Collection<String> usernames, Collection<String> emails) {
+        return jdbcTemplate.query("select username, email from users where username in (:usernames) " +
+                        "union select username, email from users where email in (:emails)",
+                new MapSqlParameterSource()
+                        .addValue("usernames", usernames)
+                        .addValue("emails", emails),
+                (rs, rowNum) -> new ExistingUser(rs.getString("username"), rs.getString("email")));
+    }
+
+    /**
+     * Inserts the users, then their roles joined to the new rows by username, so no generated id is read back.
+     * Call it in a transaction, a duplicate username or email fails the whole batch.
+     */
+    public void insertAll(List<NewUser> users) {
+        SqlParameterSource[] userRows = new SqlParameterSource[users.size()];
+        List<SqlParameterSource> roleRows = new ArrayList<>();
+        for (int i = 0; i < users.size(); i++) {
+            NewUser user = users.get(i);
+            userRows[i] = new MapSqlParameterSource()
+                    .addValue("username", user.username())
+                    .addValue("email", user.email())
+                    .addValue("password", user.password());
+            user.roleIds().forEach(roleId -> roleRows.add(new MapSqlParameterSource()
+                    .addValue("username", user.username())
+                    .addValue("roleId", roleId)));
+        }
+
+        jdbcTemplate.batchUpdate("insert into users (username, email, password) values (:username, :email, :password)", userRows);
+        jdbcTemplate.batchUpdate("insert into user_roles (user_id, role_id) select id, :roleId from users where username = :username",
+                roleRows.toArray(SqlParameterSource[]::new));
+    }
+
+    public record ExistingUser(String username, String email) {
+    }
+
+    /**
+     * @param password the encoded password
+     */
+    public record NewUser(String username, String email, String password, Collection<Integer> roleIds) {
+    }
+}
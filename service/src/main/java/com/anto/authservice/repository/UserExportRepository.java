@@ -0,0 +1,46 @@
+package com.anto.authservice.repository;
+
+import com.anto.authservice.model.ERole;
+import com.anto.authservice.model.UserWithRole;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.function.Consumer;
+
+/**
+ * Reads every user with its roles through a forward-only cursor, so an export of any size holds one row at a time.
+ */
+@Repository
+@RequiredArgsConstructor
+public class UserExportRepository {
+
+    private static final String ALL_USERS_WITH_ROLES = "select u.id, u.username, u.email, r.name as role from users u " +
+            "left join user_roles ur on ur.user_id = u.id left join roles r on r.id = ur.role_id order by u.id";
+    private static final int FETCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Hands over the rows as they are read, ordered by user id with one row per role. A single statement, so the
+     * export is a consistent snapshot on InnoDB.
+     */
+    public void forEachUserWithRole(Consumer<UserWithRole> rows) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(ALL_USERS_WITH_ROLES,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            // MySQL Connector/J reads the whole result into memory unless the fetch size is Integer.MIN_VALUE,
+            // which streams it; other drivers take the fetch size as the number of rows per round trip
+            boolean mysql = "MySQL".equals(connection.getMetaData().getDatabaseProductName());
+            statement.setFetchSize(mysql ? Integer.MIN_VALUE : FETCH_SIZE);
+            return statement;
+        }, (RowCallbackHandler) rs -> {
+            String role = rs.getString("role");
+            rows.accept(new UserWithRole(rs.getLong("id"), rs.getString("username"), rs.getString("email"),
+                    role != null ? ERole.valueOf(role) : null));
+        });
+    }
+}
@@ -1,16 +1,44 @@
 package com.anto.authservice.repository;
 
 import com.anto.authservice.model.User;
+import com.anto.authservice.model.UserWithRole;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
 
-    Boolean existsByUsername(String username);
+    /**
+     * The usernames of the users that have either the username or the email, so signup checks both in one query.
+     */
+    @Query("select u.username from User u where u.username = :username or u.email = :email")
+    List<String> findUsernamesByUsernameOrEmail(@Param("username") String username, @Param("email") String email);
 
-    Boolean existsByEmail(String email);
+    /**
+     * The ids of the next users after the given id with a matching username, a range scan of the primary key.
+     *
+     * @param usernamePattern a like pattern with ! as the escape character
+     */
+    @Query("select u.id from User u where u.id > :after and u.username like :usernamePattern escape '!' order by u.id")
+    List<Long> findIdsAfter(@Param("after") long after, @Param("usernamePattern") String usernamePattern, Pageable pageable);
+
+    /**
+     * The users with their roles in a single statement, one row per role, ordered by id.
+     */
+    @Query("select new com.anto.authservice.model.UserWithRole(u.id, u.username, u.email, r.name) " +
+            "from User u left join u.roles r where u.id in :ids order by u.id")
+    List<UserWithRole> findWithRolesByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("update User u set u.password = :password where u.username = :username")
+    int updatePassword(@Param("username") String username, @Param("password") String password);
 }
\ No newline at end of file
@@ -0,0 +1,45 @@
+package com.anto.authservice.security;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+/**
+ * Finds the bcrypt cost that fits a hashing time budget on the current machine.
+ * Every cost step doubles the work, so one timed cost is enough to extrapolate the others.
+ */
+public final class BCryptCostCalibrator {
+
+    private static final int PROBE_COST = 10;
+    private static final int MAX_COST = 31;
+    private static final String PROBE_PASSWORD = "calibration-password";
+
+    private BCryptCostCalibrator() {
+    }
+
+    /**
+     * @return the highest cost whose hash takes at most targetMs, but never less than minCost
+     */
+    public static int calibrate(long targetMs, int minCost) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(PROBE_COST);
+        // first rounds warm up the JIT
+        for (int i = 0; i < 3; i++) {
+            encoder.encode(PROBE_PASSWORD);
+        }
+
+        long start = System.nanoTime();
+        encoder.encode(PROBE_PASSWORD);
+        double probeMs = (System.nanoTime() - start) / 1e6;
+
+        int cost = PROBE_COST;
+        double costMs = probeMs;
+        while (cost > minCost && costMs > targetMs) {
+            cost--;
+            costMs /= 2;
+        }
+        while (cost < MAX_COST && costMs * 2 <= targetMs) {
+            cost++;
+            costMs *= 2;
+        }
+
+        return Math.max(cost, minCost);
+    }
+}
@@ -0,0 +1,52 @@
+package com.anto.authservice.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The password encoder shared by the servlet and the reactive security configuration.
+ */
+@Configuration
+@Slf4j
+public class PasswordEncoderConfig {
+
+    @Value("${app.passwordHashing.encoding}")
+    private String passwordEncodingId;
+
+    @Value("${app.passwordHashing.bcryptStrength}")
+    private int bcryptStrength;
+
+    @Value("${app.passwordHashing.bcryptTargetMs}")
+    private long bcryptTargetMs;
+
+    /**
+     * Stores hashes as {id}hash, so the algorithm and cost can change without invalidating existing passwords.
+     * Hashes without a prefix predate this and are checked as bcrypt. Outdated hashes are rewritten on the next
+     * successful signin.
+     */
+    @Bean
+    public PasswordEncoder passwordEncoder(MeterRegistry meterRegistry) {
+        int cost = bcryptTargetMs > 0 ? BCryptCostCalibrator.calibrate(bcryptTargetMs, bcryptStrength) : bcryptStrength;
+        log.info("Hashing new passwords with {} (bcrypt cost {})", passwordEncodingId, cost);
+
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put("bcrypt", new BCryptPasswordEncoder(cost));
+        encoders.put("argon2", Argon2PasswordEncoder.defaultsForSpringSecurity_v5_8());
+        encoders.put("pbkdf2", Pbkdf2PasswordEncoder.defaultsForSpringSecurity_v5_8());
+
+        DelegatingPasswordEncoder passwordEncoder = new DelegatingPasswordEncoder(passwordEncodingId, encoders);
+        passwordEncoder.setDefaultPasswordEncoderForMatches(encoders.get("bcrypt"));
+        return new TimedPasswordEncoder(passwordEncoder, meterRegistry);
+    }
+}
@@ -0,0 +1,81 @@
+package com.anto.authservice.security;
+
+import com.anto.authservice.security.jwt.JwtServerAuthenticationConverter;
+import com.anto.authservice.security.jwt.ReactiveAuthEntryPointJwt;
+import com.anto.authservice.service.PasswordHashingExecutor;
+import com.anto.authservice.service.ReactiveUserDetailsServiceImpl;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UserDetailsRepositoryReactiveAuthenticationManager;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.authentication.AuthenticationWebFilter;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+import reactor.core.publisher.Mono;
+
+/**
+ * The reactive counterpart of {@link WebSecurityConfig}. Without method security the role checks of the test and
+ * admin endpoints are path rules here.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@EnableWebFluxSecurity
+@RequiredArgsConstructor
+public class ReactiveWebSecurityConfig {
+
+    private final ReactiveUserDetailsServiceImpl userDetailsService;
+    private final JwtServerAuthenticationConverter jwtAuthenticationConverter;
+    private final ReactiveAuthEntryPointJwt unauthorizedHandler;
+    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingExecutor passwordHashingExecutor;
+
+    /**
+     * Checks signin passwords on the bounded password hashing pool and rewrites outdated hashes.
+     */
+    @Bean
+    public ReactiveAuthenticationManager passwordAuthenticationManager() {
+        UserDetailsRepositoryReactiveAuthenticationManager authenticationManager =
+                new UserDetailsRepositoryReactiveAuthenticationManager(userDetailsService);
+        authenticationManager.setPasswordEncoder(passwordEncoder);
+        authenticationManager.setUserDetailsPasswordService(userDetailsService);
+        authenticationManager.setScheduler(passwordHashingExecutor.scheduler());
+
+        return authenticationManager;
+    }
+
+    @Bean
+    public SecurityWebFilterChain springSecurityFilterChain(ServerHttpSecurity http) {
+        // the converter already verified the token and loaded the user
+        AuthenticationWebFilter jwtFilter = new AuthenticationWebFilter((ReactiveAuthenticationManager) Mono::just);
+        jwtFilter.setServerAuthenticationConverter(jwtAuthenticationConverter);
+        jwtFilter.setSecurityContextRepository(NoOpServerSecurityContextRepository.getInstance());
+
+        return http.csrf(ServerHttpSecurity.CsrfSpec::disable)
+                .httpBasic(ServerHttpSecurity.HttpBasicSpec::disable)
+                .formLogin(ServerHttpSecurity.FormLoginSpec::disable)
+                .logout(ServerHttpSecurity.LogoutSpec::disable)
+                .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+                .exceptionHandling(exception -> exception.authenticationEntryPoint(unauthorizedHandler))
+                .authorizeExchange(auth ->
+                        auth.pathMatchers("/api/auth/signout").authenticated()
+                                .pathMatchers("/api/auth/introspect/**").hasRole("GATEWAY")
+                                .pathMatchers("/api/auth/**").permitAll()
+                                .pathMatchers("/api/test/user").hasAnyRole("USER", "MODERATOR", "ADMIN")
+                                .pathMatchers("/api/test/mod").hasRole("MODERATOR")
+                                .pathMatchers("/api/test/admin", "/api/admin/**").hasRole("ADMIN")
+                                .pathMatchers("/api/test/**").permitAll()
+                                .pathMatchers("/.well-known/jwks.json").permitAll()
+                                .pathMatchers("/actuator/health").permitAll()
+                                .pathMatchers("/actuator/**").hasRole("ADMIN")
+                                .anyExchange().authenticated()
+                )
+                .addFilterAt(jwtFilter, SecurityWebFiltersOrder.AUTHENTICATION)
+                .build();
+    }
+}
@@ -0,0 +1,49 @@
+package com.anto.authservice.security;
+
+import com.anto.authservice.metrics.TaggedTimers;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * Times the hashing done by another encoder. Verification is tagged by outcome, a failed match on an unknown user
+ * (which the authentication provider still hashes against, to hide that the user does not exist) counts as
+ * bad_credentials.
+ */
+class TimedPasswordEncoder implements PasswordEncoder {
+
+    private static final String SUCCESS = "success";
+    private static final String BAD_CREDENTIALS = "bad_credentials";
+
+    private final PasswordEncoder delegate;
+    private final Timer encodeTimer;
+    private final TaggedTimers matchTimers;
+
+    TimedPasswordEncoder(PasswordEncoder delegate, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.encodeTimer = Timer.builder("auth.password.hash")
+                .description("Hashing a new password")
+                .register(meterRegistry);
+        this.matchTimers = new TaggedTimers(meterRegistry, "auth.password.verify",
+                "Checking a password against its stored hash", "outcome", SUCCESS, BAD_CREDENTIALS);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return encodeTimer.record(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        long start = System.nanoTime();
+        boolean matches = delegate.matches(rawPassword, encodedPassword);
+        matchTimers.record(matches ? SUCCESS : BAD_CREDENTIALS, start);
+
+        return matches;
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+}
@@ -0,0 +1,135 @@
+package com.anto.authservice.security.jwt;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Bloom filters over token ids, one per window of {@code bucketMs} of expiry times. A token is only looked up in the
+ * bucket of its own expiry, and a bucket is dropped whole once every token it covers has expired, so entries age out
+ * without ever rebuilding a filter.
+ * <p>
+ * {@link #mightContain} takes no lock and allocates nothing. Adding to an existing bucket only sets bits; creating or
+ * dropping a bucket, at most once per window, swaps a copy of the bucket array.
+ */
+class ExpiryBucketedBloomFilter {
+
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+    // with ~9.6 bits per expected entry this gives a false positive rate of about 1%
+    private static final int HASHES = 7;
+
+    private final long bucketMs;
+    private final int bitMask;
+    private volatile Buckets buckets = new Buckets(0, new long[0][]);
+
+    ExpiryBucketedBloomFilter(long bucketMs, int expectedPerBucket) {
+        this.bucketMs = bucketMs;
+        // a power of two, so a hash is reduced to a bit index with a mask
+        long bits = Math.max(64, (long) Math.ceil(expectedPerBucket * 9.6));
+        this.bitMask = (int) (Long.highestOneBit(bits - 1) << 1) - 1;
+    }
+
+    boolean mightContain(String id, long expiresAtMs) {
+        long[] words = buckets.get(expiresAtMs / bucketMs);
+        if (words == null) {
+            return false;
+        }
+
+        long hash = hash(id);
+        long step = mix(hash) | 1;
+        for (int i = 0; i < HASHES; i++) {
+            int bit = (int) (hash + i * step) & bitMask;
+            if (((long) WORDS.getAcquire(words, bit >>> 6) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    void add(String id, long expiresAtMs) {
+        long[] words = bucket(expiresAtMs / bucketMs);
+        long hash = hash(id);
+        long step = mix(hash) | 1;
+        for (int i = 0; i < HASHES; i++) {
+            int bit = (int) (hash + i * step) & bitMask;
+            WORDS.getAndBitwiseOrRelease(words, bit >>> 6, 1L << bit);
+        }
+    }
+
+    /**
+     * Drops the buckets whose tokens have all expired at the given time.
+     */
+    synchronized void expire(long nowMs) {
+        Buckets current = buckets;
+        int expired = (int) Math.min(current.words().length, Math.max(0, nowMs / bucketMs - current.first()));
+        if (expired > 0) {
+            long[][] words = new long[current.words().length - expired][];
+            System.arraycopy(current.words(), expired, words, 0, words.length);
+            buckets = new Buckets(current.first() + expired, words);
+        }
+    }
+
+    private long[] bucket(long number) {
+        long[] words = buckets.get(number);
+        return words != null ? words : createBucket(number);
+    }
+
+    private synchronized long[] createBucket(long number) {
+        Buckets current = buckets;
+        long[] existing = current.get(number);
+        if (existing != null) {
+            return existing;
+        }
+
+        long[][] currentWords = current.words();
+        long[][] words;
+        long first;
+        if (currentWords.length == 0) {
+            first = number;
+            words = new long[1][];
+        } else {
+            first = Math.min(current.first(), number);
+            long last = Math.max(current.first() + currentWords.length - 1, number);
+            words = new long[(int) (last - first + 1)][];
+            System.arraycopy(currentWords, 0, words, (int) (current.first() - first), currentWords.length);
+        }
+
+        long[] created = new long[(bitMask >>> 6) + 1];
+        words[(int) (number - first)] = created;
+        buckets = new Buckets(first, words);
+
+        return created;
+    }
+
+    // FNV-1a over the chars, so hashing a claim needs no byte[] copy
+    private static long hash(String id) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < id.length(); i++) {
+            hash ^= id.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+
+        return mix(hash);
+    }
+
+    // murmur3 finalizer, spreads the bits used for the second hash
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /**
+     * Buckets numbered from {@code first}, an entry is null when nothing expiring in its window was added.
+     */
+    private record Buckets(long first, long[][] words) {
+
+        long[] get(long number) {
+            long index = number - first;
+            return index >= 0 && index < words.length ? words[(int) index] : null;
+        }
+    }
+}
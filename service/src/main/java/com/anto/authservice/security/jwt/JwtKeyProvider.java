@@ -0,0 +1,298 @@
+package com.anto.authservice.security.jwt;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.*;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Keyring for access tokens: signs with the current key and verifies with any active key, selected by the kid header.
+ * <p>
+ * HS512 with {@code app.jwt.secret} stays the default, an asymmetric algorithm (RS256, ES256, EdDSA, ...) lets
+ * resource servers verify tokens offline with the public keys published on the JWKS endpoint.
+ * {@code app.jwt.keyLocation} is either a single key file or a directory of {@code <kid>.pem} files
+ * ({@code <kid>.key} files holding a Base64 secret for HMAC). It is polled every {@code app.jwt.keyReloadMs}:
+ * the newest file with a private key signs, older ones keep verifying, and a removed key keeps verifying
+ * for {@code app.jwt.keyGraceMs} so the tokens it signed stay valid until they expire.
+ */
+@Component
+@Slf4j
+public class JwtKeyProvider {
+
+    private final SecureDigestAlgorithm<?, ?> algorithm;
+    private final String keyId;
+    private final Path keyLocation;
+    private final long keyGraceMs;
+    private final long keyActivationDelayMs;
+
+    // only touched by reload(), which is synchronized
+    private final Map<String, RetiredKey> retiredKeys = new HashMap<>();
+    private Map<Path, Long> loadedFiles = Map.of();
+    private Map<String, JwtSigningKey> loadedKeys = Map.of();
+    private long nextActivationAt = Long.MAX_VALUE;
+
+    private volatile KeyRing keyRing;
+
+    public JwtKeyProvider(
+            @Value("${app.jwt.secret}") String jwtSecret,
+            @Value("${app.jwt.algorithm:HS512}") String algorithm,
+            @Value("${app.jwt.keyId:}") String keyId,
+            @Value("${app.jwt.keyLocation:}") String keyLocation,
+            @Value("${app.jwt.keyGraceMs:${app.jwt.expirationMs}}") long keyGraceMs,
+            @Value("${app.jwt.keyActivationDelayMs:0}") long keyActivationDelayMs) {
+        this.algorithm = Jwts.SIG.get().forKey(algorithm);
+        this.keyId = StringUtils.hasText(keyId) ? keyId : null;
+        this.keyLocation = StringUtils.hasText(keyLocation) ? Path.of(keyLocation) : null;
+        this.keyGraceMs = keyGraceMs;
+        this.keyActivationDelayMs = keyActivationDelayMs;
+
+        if (this.keyLocation == null) {
+            this.keyRing = KeyRing.of(staticKey(jwtSecret), List.of(), 0);
+            log.info("Signing access tokens with {} (kid: {})", algorithm, keyRing.current().keyId());
+        } else {
+            reload();
+            if (keyRing == null) {
+                throw new IllegalStateException("No usable signing key found in " + keyLocation);
+            }
+        }
+    }
+
+    public JwtSigningKey getSigningKey() {
+        return keyRing.current();
+    }
+
+    /**
+     * @return the key matching the kid from a token header, tokens without a kid use the current key
+     */
+    public Key getVerificationKey(String keyId) {
+        KeyRing ring = keyRing;
+        JwtSigningKey key = keyId == null ? ring.current() : ring.verificationKeys().get(keyId);
+        if (key == null) {
+            throw new UnsupportedKeyException("Unknown signing key id: " + keyId);
+        }
+
+        return key.verificationKey();
+    }
+
+    public JwksDocument getJwksDocument() {
+        return keyRing.jwksDocument();
+    }
+
+    /**
+     * Changes whenever keys are added, replaced or dropped, so a token verified under an older generation has to be
+     * verified again before it is trusted.
+     */
+    public long getKeyRingGeneration() {
+        return keyRing.generation();
+    }
+
+    /**
+     * Picks up added, replaced and removed key files and drops retired keys past their grace window.
+     * A file that fails to load leaves the current keyring in place and is retried on the next run.
+     */
+    @Scheduled(initialDelayString = "${app.jwt.keyReloadMs}", fixedDelayString = "${app.jwt.keyReloadMs}")
+    public synchronized void reload() {
+        if (keyLocation == null) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        Map<Path, Long> files;
+        try {
+            files = listKeyFiles();
+        } catch (IOException e) {
+            log.error("Cannot list signing keys in {}: {}", keyLocation, e.getMessage());
+            return;
+        }
+
+        // only pruned once the new keyring is built, a failed load has to find them expired again on the next run
+        boolean retiredExpired = retiredKeys.values().stream().anyMatch(retired -> retired.until() <= now);
+        if (files.equals(loadedFiles) && !retiredExpired && now < nextActivationAt) {
+            return;
+        }
+
+        Map<String, TimestampedKey> loaded = new HashMap<>();
+        try {
+            for (Map.Entry<Path, Long> file : files.entrySet()) {
+                JwtSigningKey key = readKey(file.getKey(), files.size() == 1 && !Files.isDirectory(keyLocation));
+                loaded.put(key.keyId(), new TimestampedKey(key, file.getValue()));
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Cannot load signing keys from {}, keeping the current keyring: {}", keyLocation, e.getMessage());
+            return;
+        }
+
+        JwtSigningKey current = selectCurrent(loaded.values(), now);
+        if (current == null) {
+            log.error("No private key found in {}, keeping the current keyring", keyLocation);
+            return;
+        }
+
+        retiredKeys.values().removeIf(retired -> retired.until() <= now);
+        loadedKeys.forEach((kid, key) -> {
+            if (!loaded.containsKey(kid)) {
+                log.info("Signing key {} removed, it keeps verifying tokens for {} ms", kid, keyGraceMs);
+                retiredKeys.put(kid, new RetiredKey(key, now + keyGraceMs));
+            }
+        });
+        retiredKeys.keySet().removeAll(loaded.keySet());
+
+        List<JwtSigningKey> verifiers = new ArrayList<>();
+        loaded.values().forEach(key -> verifiers.add(key.key()));
+        retiredKeys.values().forEach(retired -> verifiers.add(retired.key()));
+
+        KeyRing previous = keyRing;
+        keyRing = KeyRing.of(current, verifiers, previous == null ? 0 : previous.generation() + 1);
+        loadedFiles = files;
+        loadedKeys = new HashMap<>();
+        loaded.forEach((kid, key) -> loadedKeys.put(kid, key.key()));
+        if (previous == null || !previous.current().keyId().equals(current.keyId())) {
+            log.info("Signing access tokens with {} (kid: {})", algorithm.getId(), current.keyId());
+        }
+    }
+
+    private JwtSigningKey staticKey(String jwtSecret) {
+        if (algorithm instanceof MacAlgorithm) {
+            Key secretKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret));
+            return new JwtSigningKey(keyId, algorithm, secretKey, secretKey);
+        }
+
+        log.warn("No app.jwt.keyLocation configured, generating an ephemeral {} key pair. Tokens will not survive a restart", algorithm.getId());
+        // EdDSA would default to Ed448, Ed25519 is the curve resource servers generally support
+        KeyPair keyPair = algorithm == Jwts.SIG.EdDSA
+                ? Jwks.CRV.Ed25519.keyPair().build()
+                : ((SignatureAlgorithm) algorithm).keyPair().build();
+
+        return new JwtSigningKey(keyId != null ? keyId : thumbprint(keyPair.getPublic()), algorithm, keyPair.getPrivate(), keyPair.getPublic());
+    }
+
+    private Map<Path, Long> listKeyFiles() throws IOException {
+        if (!Files.isDirectory(keyLocation)) {
+            return Map.of(keyLocation, Files.getLastModifiedTime(keyLocation).toMillis());
+        }
+
+        String extension = algorithm instanceof MacAlgorithm ? ".key" : ".pem";
+        Map<Path, Long> files = new HashMap<>();
+        try (Stream<Path> paths = Files.list(keyLocation)) {
+            for (Path path : paths.filter(p -> p.getFileName().toString().endsWith(extension)).toList()) {
+                files.put(path, Files.getLastModifiedTime(path).toMillis());
+            }
+        }
+
+        return files;
+    }
+
+    private JwtSigningKey readKey(Path path, boolean singleFile) throws IOException {
+        String fileName = path.getFileName().toString();
+        String fileKeyId = singleFile ? keyId : fileName.substring(0, fileName.lastIndexOf('.'));
+
+        if (algorithm instanceof MacAlgorithm) {
+            Key secretKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(Files.readString(path).trim()));
+            return new JwtSigningKey(fileKeyId != null ? fileKeyId : thumbprint(secretKey), algorithm, secretKey, secretKey);
+        }
+
+        KeyPair keyPair = PemKeys.read(path, PemKeys.keyAlgorithm(algorithm.getId()));
+        return new JwtSigningKey(fileKeyId != null ? fileKeyId : thumbprint(keyPair.getPublic()), algorithm, keyPair.getPrivate(), keyPair.getPublic());
+    }
+
+    /**
+     * The newest key that can sign and has been published for at least the activation delay, so resource servers
+     * caching the JWKS know it before they see it. Falls back to the newest signing key so a fresh keyring is usable.
+     */
+    private JwtSigningKey selectCurrent(Collection<TimestampedKey> keys, long now) {
+        List<TimestampedKey> signers = keys.stream()
+                .filter(key -> key.key().signingKey() != null)
+                .sorted(Comparator.comparingLong(TimestampedKey::modifiedAt).reversed())
+                .toList();
+        if (signers.isEmpty()) {
+            return null;
+        }
+
+        TimestampedKey newest = signers.get(0);
+        nextActivationAt = newest.modifiedAt() + keyActivationDelayMs > now ? newest.modifiedAt() + keyActivationDelayMs : Long.MAX_VALUE;
+
+        return signers.stream()
+                .filter(key -> key.modifiedAt() + keyActivationDelayMs <= now)
+                .findFirst()
+                .orElse(newest)
+                .key();
+    }
+
+    private static String thumbprint(Key key) {
+        return key instanceof PublicKey publicKey
+                ? Jwks.builder().key(publicKey).idFromThumbprint().build().getId()
+                : Jwks.builder().key((javax.crypto.SecretKey) key).idFromThumbprint().build().getId();
+    }
+
+    private record TimestampedKey(JwtSigningKey key, long modifiedAt) {
+    }
+
+    private record RetiredKey(JwtSigningKey key, long until) {
+    }
+
+    private record KeyRing(JwtSigningKey current, Map<String, JwtSigningKey> verificationKeys, JwksDocument jwksDocument,
+                           long generation) {
+
+        static KeyRing of(JwtSigningKey current, Collection<JwtSigningKey> verifiers, long generation) {
+            Map<String, JwtSigningKey> keys = new HashMap<>();
+            verifiers.forEach(key -> keys.put(key.keyId(), key));
+            if (current.keyId() != null) {
+                keys.put(current.keyId(), current);
+            }
+
+            return new KeyRing(current, Map.copyOf(keys), JwksDocument.of(keys.values()), generation);
+        }
+    }
+
+    /**
+     * The serialized public JWK set with its ETag, built once per key change rather than per request.
+     */
+    public record JwksDocument(String json, String etag) {
+
+        static JwksDocument of(Collection<JwtSigningKey> keys) {
+            StringBuilder json = new StringBuilder("{\"keys\":[");
+            String separator = "";
+            for (JwtSigningKey key : keys.stream().sorted(Comparator.comparing(JwtSigningKey::keyId)).toList()) {
+                if (!key.isAsymmetric()) {
+                    // never publish a shared secret
+                    continue;
+                }
+                PublicJwk<?> jwk = Jwks.builder().key((PublicKey) key.verificationKey())
+                        .id(key.keyId())
+                        .algorithm(key.algorithm().getId())
+                        .publicKeyUse("sig")
+                        .build();
+                json.append(separator).append(Jwks.json(jwk));
+                separator = ",";
+            }
+            json.append("]}");
+
+            return new JwksDocument(json.toString(), etag(json.toString()));
+        }
+
+        private static String etag(String json) {
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256").digest(json.getBytes(StandardCharsets.UTF_8));
+                return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest) + "\"";
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
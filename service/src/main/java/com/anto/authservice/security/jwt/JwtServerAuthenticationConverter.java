@@ -0,0 +1,68 @@
+package com.anto.authservice.security.jwt;
+
+import com.anto.authservice.repository.ReactiveRevokedTokenRepository;
+import com.anto.authservice.service.ReactiveUserDetailsServiceImpl;
+import io.jsonwebtoken.Claims;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.web.server.authentication.ServerAuthenticationConverter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * The reactive {@link AuthTokenFilter}: a valid bearer token becomes an authenticated principal, anything else leaves
+ * the request anonymous for the authorization rules to decide. The signature is verified on the event loop, a
+ * revocation filter hit is confirmed and a user cache miss loaded over R2DBC.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+@Slf4j
+public class JwtServerAuthenticationConverter implements ServerAuthenticationConverter {
+
+    private final JwtUtils jwtUtils;
+    private final TokenRevocationList revocationList;
+    private final ReactiveRevokedTokenRepository revokedTokenRepository;
+    private final ReactiveUserDetailsServiceImpl userDetailsService;
+
+    @Override
+    public Mono<Authentication> convert(ServerWebExchange exchange) {
+        return Mono.justOrEmpty(jwtUtils.getJwtFromHeader(exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION)))
+                .flatMap(jwt -> Mono.justOrEmpty(jwtUtils.verifyJwtUncheckedForRevocation(jwt)))
+                .filterWhen(this::notRevoked)
+                .flatMap(this::loadUser)
+                .map(userDetails -> (Authentication) UsernamePasswordAuthenticationToken.authenticated(
+                        userDetails, null, userDetails.getAuthorities()))
+                .onErrorResume(e -> {
+                    log.error("Cannot set user authentication: {}", e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<Boolean> notRevoked(VerifiedToken token) {
+        Claims claims = token.claims();
+        if (claims.getId() == null || !revocationList.mightBeRevoked(claims.getId(), claims.getExpiration().getTime())) {
+            return Mono.just(true);
+        }
+
+        return revokedTokenRepository.existsById(claims.getId())
+                .doOnNext(revoked -> {
+                    if (revoked) {
+                        log.error("JWT token is revoked: {}", claims.getId());
+                    }
+                })
+                .map(revoked -> !revoked);
+    }
+
+    private Mono<UserDetails> loadUser(VerifiedToken token) {
+        return token.statelessUser() != null
+                ? Mono.just(token.statelessUser())
+                : userDetailsService.findByUsername(token.claims().getSubject());
+    }
+}
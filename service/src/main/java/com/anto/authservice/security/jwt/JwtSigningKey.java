@@ -0,0 +1,16 @@
+package com.anto.authservice.security.jwt;
+
+import io.jsonwebtoken.security.SecureDigestAlgorithm;
+
+import java.security.Key;
+import java.security.PublicKey;
+
+/**
+ * A key used to sign or verify access tokens. For HMAC both keys are the same secret.
+ */
+public record JwtSigningKey(String keyId, SecureDigestAlgorithm<?, ?> algorithm, Key signingKey, Key verificationKey) {
+
+    public boolean isAsymmetric() {
+        return verificationKey instanceof PublicKey;
+    }
+}
@@ -1,70 +1,294 @@
 package com.anto.authservice.security.jwt;
 
+import com.anto.authservice.metrics.TaggedTimers;
+import com.anto.authservice.model.ERole;
 import com.anto.authservice.service.UserDetailsImpl;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.*;
-import io.jsonwebtoken.io.Decoders;
-import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SecureDigestAlgorithm;
+import io.jsonwebtoken.security.SecurityException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import lombok.extern.slf4j.Slf4j;
+import org.slf4j.event.Level;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
 
 import java.security.Key;
+import java.util.Collection;
 import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 @Component
 @Slf4j
 public class JwtUtils {
 
-    private final String jwtSecret;
+    private static final String CLAIM_ID = "id";
+    private static final String CLAIM_EMAIL = "email";
+    private static final String CLAIM_ROLES = "roles";
+
+    private static final String SUCCESS = "success";
+    private static final String CACHED = "cached";
+    private static final String REVOKED = "revoked";
+    private static final String EXPIRED = "expired";
+    private static final String MALFORMED = "malformed";
+    private static final String UNSUPPORTED = "unsupported";
+    private static final String INVALID_SIGNATURE = "invalid_signature";
+    private static final String EMPTY = "empty";
+
+    private final JwtKeyProvider keyProvider;
+    private final TokenRevocationList revocationList;
     private final int jwtExpirationMs;
+    private final boolean statelessAuth;
+    // JwtParser is immutable and thread-safe, so a single instance serves every request
+    private final JwtParser jwtParser;
+    private final Timer signTimer;
+    private final TaggedTimers parseTimers;
+    // tokens that passed verification, until they expire; null when app.jwt.verifiedCache.maximumSize is 0
+    private final Cache<String, CachedToken> verifiedTokens;
 
     public JwtUtils(
-            @Value("${app.jwt.secret}") String jwtSecret,
-            @Value("${app.jwt.expirationMs}") int jwtExpirationMs) {
-        this.jwtSecret = jwtSecret;
+            JwtKeyProvider keyProvider,
+            TokenRevocationList revocationList,
+            MeterRegistry meterRegistry,
+            @Value("${app.jwt.expirationMs}") int jwtExpirationMs,
+            @Value("${app.jwt.stateless:false}") boolean statelessAuth,
+            @Value("${app.jwt.verifiedCache.maximumSize:0}") long verifiedCacheMaximumSize) {
+        this.keyProvider = keyProvider;
+        this.revocationList = revocationList;
+        this.signTimer = Timer.builder("auth.jwt.sign")
+                .description("Building and signing an access token")
+                .register(meterRegistry);
+        this.parseTimers = new TaggedTimers(meterRegistry, "auth.jwt.parse",
+                "Verifying an access token and reading its claims, including the revocation check", "outcome",
+                SUCCESS, CACHED, REVOKED, EXPIRED, MALFORMED, UNSUPPORTED, INVALID_SIGNATURE, EMPTY);
         this.jwtExpirationMs = jwtExpirationMs;
+        this.statelessAuth = statelessAuth;
+        this.jwtParser = Jwts.parser()
+                .keyLocator(new LocatorAdapter<>() {
+                    @Override
+                    protected Key locate(JwsHeader header) {
+                        return keyProvider.getVerificationKey(header.getKeyId());
+                    }
+                })
+                .build();
+        this.verifiedTokens = verifiedCacheMaximumSize > 0 ? verifiedTokenCache(verifiedCacheMaximumSize, meterRegistry) : null;
+    }
+
+    /**
+     * Keyed by the token itself: its hash picks the entry and the string comparison on a hit costs a fraction of
+     * a signature check, while a hash collision can never hand out another token's principal. Only verified tokens
+     * are added, so unverifiable ones cannot push out real entries.
+     */
+    private static Cache<String, CachedToken> verifiedTokenCache(long maximumSize, MeterRegistry meterRegistry) {
+        Cache<String, CachedToken> cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<String, CachedToken>() {
+                    @Override
+                    public long expireAfterCreate(String token, CachedToken cached, long currentTime) {
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, cached.expiresAtMs() - System.currentTimeMillis()));
+                    }
+
+                    // a token re-verified after a key change keeps its expiry
+                    @Override
+                    public long expireAfterUpdate(String token, CachedToken cached, long currentTime, long currentDuration) {
+                        return expireAfterCreate(token, cached, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String token, CachedToken cached, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwt.verified");
+
+        return cache;
     }
 
     public String generateJwt(Authentication authentication) {
 
         UserDetailsImpl userPrincipal = (UserDetailsImpl) authentication.getPrincipal();
 
-        return generateTokenFromUsername(userPrincipal.getUsername());
+        return generateTokenFromUser(userPrincipal);
     }
 
     public String generateTokenFromUsername(String username) {
+        return signTimer.record(() -> tokenBuilder(username).compact());
+    }
+
+    /**
+     * In stateless mode the id, email and roles are embedded so {@link AuthTokenFilter} can skip the user lookup.
+     */
+    public String generateTokenFromUser(UserDetailsImpl user) {
+        JwtBuilder builder = tokenBuilder(user.getUsername());
+        if (statelessAuth) {
+            builder.claim(CLAIM_ID, user.getId())
+                    .claim(CLAIM_EMAIL, user.getEmail())
+                    .claim(CLAIM_ROLES, user.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList());
+        }
+
+        return signTimer.record(builder::compact);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private JwtBuilder tokenBuilder(String username) {
+        JwtSigningKey signingKey = keyProvider.getSigningKey();
+        Date now = new Date();
+
         return Jwts.builder()
-                .setSubject(username)
-                .setIssuedAt(new Date())
-                .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
-                .signWith(getKey(), SignatureAlgorithm.HS512)
-                .compact();
+                .header().keyId(signingKey.keyId()).and()
+                .id(UUID.randomUUID().toString())
+                .subject(username)
+                .issuedAt(now)
+                .expiration(new Date(now.getTime() + jwtExpirationMs))
+                .signWith(signingKey.signingKey(), (SecureDigestAlgorithm) signingKey.algorithm());
+    }
+
+    /**
+     * @return the token of a {@code Bearer} Authorization header, or null
+     */
+    public String getJwtFromHeader(String headerAuth) {
+        if (StringUtils.hasText(headerAuth) && headerAuth.startsWith("Bearer ")) {
+            return headerAuth.substring(7);
+        }
+
+        return null;
     }
 
-    private Key getKey() {
-        return Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret));
+    public boolean isStatelessAuth() {
+        return statelessAuth;
     }
 
-    public String getUserNameFromJwt(String token) {
-        return Jwts.parserBuilder().setSigningKey(getKey()).build()
-                .parseClaimsJws(token).getBody().getSubject();
+    /**
+     * Rebuilds the principal from verified claims, or returns null when the token was issued without them
+     * (e.g. before stateless mode was switched on) and the caller has to load the user.
+     */
+    private UserDetailsImpl getUserDetailsFromClaims(Claims claims) {
+        Object id = claims.get(CLAIM_ID);
+        Object roles = claims.get(CLAIM_ROLES);
+        if (!(id instanceof Number) || !(roles instanceof Collection<?> roleNames)) {
+            return null;
+        }
+
+        List<GrantedAuthority> authorities = roleNames.stream()
+                .map(role -> ERole.authorityOf(role.toString()))
+                .toList();
+
+        return new UserDetailsImpl(
+                ((Number) id).longValue(),
+                claims.getSubject(),
+                claims.get(CLAIM_EMAIL, String.class),
+                null,
+                authorities);
     }
 
-    public boolean validateJwt(String authToken) {
+    /**
+     * @return the role names embedded in a stateless token, as parsed, or null when it was issued without them
+     */
+    @SuppressWarnings("unchecked")
+    public List<String> getRolesFromClaims(Claims claims) {
+        return claims.get(CLAIM_ROLES) instanceof List<?> roles ? (List<String>) roles : null;
+    }
+
+    /**
+     * Verifies the signature and expiry of the token and that it was not revoked, returning its claims in a single
+     * parse. An empty result means the token is not usable, the reason is logged.
+     * Tokens issued before the jti claim was added cannot be revoked.
+     */
+    public Optional<Claims> getClaimsFromJwt(String authToken) {
+        return verifyJwt(authToken).map(VerifiedToken::claims);
+    }
+
+    /**
+     * The checks of {@link #getClaimsFromJwt}, also returning the principal carried by a stateless token.
+     */
+    public Optional<VerifiedToken> verifyJwt(String authToken) {
+        return Optional.ofNullable(verify(authToken, true, Level.ERROR));
+    }
+
+    /**
+     * Like {@link #verifyJwt} without asking the {@link TokenRevocationList}, for callers that check revocation
+     * themselves without blocking, as the reactive authentication does.
+     */
+    public Optional<VerifiedToken> verifyJwtUncheckedForRevocation(String authToken) {
+        return Optional.ofNullable(verify(authToken, false, Level.ERROR));
+    }
+
+    /**
+     * The checks of {@link #getClaimsFromJwt} for token introspection, where an inactive token is an answer rather
+     * than an error: the reason is only logged at debug level, and nothing beyond the parse itself is allocated.
+     *
+     * @return the claims, or null when the token is not active
+     */
+    public Claims introspectClaims(String authToken) {
+        VerifiedToken verified = verify(authToken, true, Level.DEBUG);
+        return verified != null ? verified.claims() : null;
+    }
+
+    /**
+     * A token found in the verified token cache skips the signature check and the claims parsing, unless the keyring
+     * changed since it was verified: a dropped or replaced key must no longer vouch for it. Revocation is checked
+     * on every call, against the Bloom filter first.
+     */
+    private VerifiedToken verify(String authToken, boolean checkRevocation, Level failureLevel) {
+        long start = System.nanoTime();
+        String outcome;
         try {
-            Jwts.parserBuilder().setSigningKey(getKey()).build().parse(authToken);
-            return true;
+            long keyRingGeneration = keyProvider.getKeyRingGeneration();
+            CachedToken cached = verifiedTokens != null && authToken != null ? verifiedTokens.getIfPresent(authToken) : null;
+            String verifiedOutcome = CACHED;
+            if (cached == null || cached.keyRingGeneration() != keyRingGeneration) {
+                Claims claims = jwtParser.parseSignedClaims(authToken).getPayload();
+                cached = new CachedToken(new VerifiedToken(claims, statelessAuth ? getUserDetailsFromClaims(claims) : null),
+                        claims.getExpiration().getTime(), keyRingGeneration);
+                if (verifiedTokens != null) {
+                    verifiedTokens.put(authToken, cached);
+                }
+                verifiedOutcome = SUCCESS;
+            }
+
+            Claims claims = cached.token().claims();
+            if (checkRevocation && claims.getId() != null
+                    && revocationList.isRevoked(claims.getId(), cached.expiresAtMs())) {
+                log.atLevel(failureLevel).log("JWT token is revoked: {}", claims.getId());
+                parseTimers.record(REVOKED, start);
+                return null;
+            }
+            parseTimers.record(verifiedOutcome, start);
+            return cached.token();
         } catch (MalformedJwtException e) {
-            log.error("Invalid JWT token: {}", e.getMessage());
+            log.atLevel(failureLevel).log("Invalid JWT token: {}", e.getMessage());
+            outcome = MALFORMED;
         } catch (ExpiredJwtException e) {
-            log.error("JWT token is expired: {}", e.getMessage());
+            log.atLevel(failureLevel).log("JWT token is expired: {}", e.getMessage());
+            outcome = EXPIRED;
         } catch (UnsupportedJwtException e) {
-            log.error("JWT token is unsupported: {}", e.getMessage());
+            log.atLevel(failureLevel).log("JWT token is unsupported: {}", e.getMessage());
+            outcome = UNSUPPORTED;
+        } catch (SecurityException e) {
+            log.atLevel(failureLevel).log("Invalid JWT signature or key: {}", e.getMessage());
+            outcome = INVALID_SIGNATURE;
         } catch (IllegalArgumentException e) {
-            log.error("JWT claims string is empty: {}", e.getMessage());
+            log.atLevel(failureLevel).log("JWT claims string is empty: {}", e.getMessage());
+            outcome = EMPTY;
         }
 
-        return false;
+        parseTimers.record(outcome, start);
+        return null;
+    }
+
+    // the generation of the keyring that verified the token, read before verifying so a concurrent reload is never missed
+    private record CachedToken(VerifiedToken token, long expiresAtMs, long keyRingGeneration) {
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,77 @@
+package com.anto.authservice.security.jwt;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.RSAPrivateCrtKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.RSAPublicKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads a PEM file holding a PKCS#8 "PRIVATE KEY" block and/or an X.509 "PUBLIC KEY" block,
+ * as produced by e.g. {@code openssl genpkey} followed by {@code openssl pkey -pubout}.
+ */
+final class PemKeys {
+
+    private static final Pattern PEM_BLOCK = Pattern.compile("-----BEGIN ([A-Z ]+)-----([A-Za-z0-9+/=\\s]+)-----END \\1-----");
+
+    private PemKeys() {
+    }
+
+    /**
+     * @return the key pair, where the private key is null for verification-only files
+     */
+    static KeyPair read(Path path, String keyAlgorithm) throws IOException {
+        String pem = Files.readString(path);
+        PrivateKey privateKey = null;
+        PublicKey publicKey = null;
+
+        try {
+            KeyFactory keyFactory = KeyFactory.getInstance(keyAlgorithm);
+            Matcher matcher = PEM_BLOCK.matcher(pem);
+            while (matcher.find()) {
+                byte[] der = Base64.getMimeDecoder().decode(matcher.group(2));
+                switch (matcher.group(1)) {
+                    case "PRIVATE KEY" -> privateKey = keyFactory.generatePrivate(new PKCS8EncodedKeySpec(der));
+                    case "PUBLIC KEY" -> publicKey = keyFactory.generatePublic(new X509EncodedKeySpec(der));
+                    default -> throw new IllegalArgumentException("Unsupported PEM block " + matcher.group(1) + " in " + path);
+                }
+            }
+
+            if (publicKey == null && privateKey instanceof RSAPrivateCrtKey rsaKey) {
+                publicKey = keyFactory.generatePublic(new RSAPublicKeySpec(rsaKey.getModulus(), rsaKey.getPublicExponent()));
+            }
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException("Invalid " + keyAlgorithm + " key in " + path + ": " + e.getMessage(), e);
+        }
+
+        if (publicKey == null) {
+            throw new IllegalArgumentException("No PUBLIC KEY block found in " + path);
+        }
+
+        return new KeyPair(publicKey, privateKey);
+    }
+
+    static String keyAlgorithm(String jwsAlgorithm) {
+        if (jwsAlgorithm.startsWith("RS") || jwsAlgorithm.startsWith("PS")) {
+            return "RSA";
+        }
+        if (jwsAlgorithm.startsWith("ES")) {
+            return "EC";
+        }
+        if (jwsAlgorithm.equals("EdDSA")) {
+            return "EdDSA";
+        }
+
+        throw new IllegalArgumentException("Not an asymmetric JWS algorithm: " + jwsAlgorithm);
+    }
+}
@@ -0,0 +1,84 @@
+package com.anto.authservice.security.jwt;
+
+import com.anto.authservice.model.RevokedToken;
+import com.anto.authservice.repository.RevokedTokenRepository;
+import com.anto.authservice.service.invalidation.InvalidationBus;
+import com.anto.authservice.service.invalidation.InvalidationEvent;
+import com.anto.authservice.service.invalidation.InvalidationListener;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Access tokens revoked before their expiry, by jti. The revokedtoken table is authoritative; an in-memory
+ * {@link ExpiryBucketedBloomFilter} in front of it answers the common case, a token that was never revoked,
+ * without a query. Only filter hits, revoked tokens and the rare false positive, reach the database.
+ * <p>
+ * The filter is loaded from the table on startup and kept current by the {@link InvalidationBus}.
+ */
+@Component
+@Slf4j
+public class TokenRevocationList implements InvalidationListener {
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final ExpiryBucketedBloomFilter filter;
+
+    public TokenRevocationList(
+            RevokedTokenRepository revokedTokenRepository,
+            @Value("${app.jwt.revocation.bucketMs}") long bucketMs,
+            @Value("${app.jwt.revocation.expectedPerBucket}") int expectedPerBucket) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.filter = new ExpiryBucketedBloomFilter(bucketMs, expectedPerBucket);
+    }
+
+    @PostConstruct
+    void load() {
+        List<RevokedToken> revoked = revokedTokenRepository.findByExpiryDateAfter(Instant.now());
+        revoked.forEach(token -> filter.add(token.getJti(), token.getExpiryDate().toEpochMilli()));
+        log.info("Loaded {} revoked access tokens", revoked.size());
+    }
+
+    /**
+     * Only writes the row, the filters pick it up from the {@link InvalidationEvent#accessToken} event published
+     * after it. That way a filter never has the bit of a token whose row cannot be found yet.
+     */
+    public void revoke(String jti, Instant expiryDate) {
+        revokedTokenRepository.save(new RevokedToken(jti, expiryDate));
+    }
+
+    @Override
+    public void onInvalidation(InvalidationEvent event) {
+        if (event.type() == InvalidationEvent.Type.ACCESS_TOKEN) {
+            filter.add(event.key(), event.expiryDate().toEpochMilli());
+        }
+    }
+
+    public boolean isRevoked(String jti, long expiresAtMs) {
+        return mightBeRevoked(jti, expiresAtMs) && revokedTokenRepository.existsById(jti);
+    }
+
+    /**
+     * The in-memory check alone: false means the token is certainly not revoked, true has to be confirmed by a lookup.
+     */
+    public boolean mightBeRevoked(String jti, long expiresAtMs) {
+        return filter.mightContain(jti, expiresAtMs);
+    }
+
+    /**
+     * Forgets revocations of tokens that have expired anyway, dropping their filter buckets and rows.
+     */
+    @Scheduled(initialDelayString = "${app.jwt.revocation.purgeIntervalMs}", fixedDelayString = "${app.jwt.revocation.purgeIntervalMs}")
+    public void purgeExpired() {
+        Instant now = Instant.now();
+        filter.expire(now.toEpochMilli());
+        int purged = revokedTokenRepository.deleteExpired(now);
+        if (purged > 0) {
+            log.info("Purged {} expired access token revocations", purged);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.anto.authservice.security.jwt;
+
+import com.anto.authservice.service.UserDetailsImpl;
+import io.jsonwebtoken.Claims;
+
+/**
+ * An access token whose signature and expiry were checked, with its claims and, for tokens carrying the user
+ * (stateless mode), the principal rebuilt from them. Null when the user has to be loaded.
+ */
+public record VerifiedToken(Claims claims, UserDetailsImpl statelessUser) {
+}
@@ -0,0 +1,94 @@
+package com.anto.authservice.security.ratelimit;
+
+import com.anto.authservice.exception.TooManyRequestsException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits signin attempts per username and per client address before the user is loaded or a password is hashed, so a
+ * credential stuffing flood is turned away for the cost of a map lookup and a compare-and-set instead of a bcrypt run.
+ * <p>
+ * Buckets live in bounded Caffeine maps. A bucket left alone for as long as it takes to refill completely is dropped,
+ * since a new one behaves the same.
+ */
+@Component
+public class LoginRateLimiter {
+
+    private final boolean enabled;
+    private final Limit perUser;
+    private final Limit perAddress;
+
+    public LoginRateLimiter(
+            MeterRegistry meterRegistry,
+            @Value("${app.loginRateLimit.enabled}") boolean enabled,
+            @Value("${app.loginRateLimit.perUser.capacity}") int perUserCapacity,
+            @Value("${app.loginRateLimit.perUser.refillMs}") long perUserRefillMs,
+            @Value("${app.loginRateLimit.perAddress.capacity}") int perAddressCapacity,
+            @Value("${app.loginRateLimit.perAddress.refillMs}") long perAddressRefillMs,
+            @Value("${app.loginRateLimit.maximumKeys}") long maximumKeys) {
+        this.enabled = enabled;
+        this.perUser = new Limit(perUserCapacity, perUserRefillMs, maximumKeys, throttledCounter(meterRegistry, "user"));
+        this.perAddress = new Limit(perAddressCapacity, perAddressRefillMs, maximumKeys, throttledCounter(meterRegistry, "address"));
+    }
+
+    /**
+     * Takes a token from the bucket of the client address, then from the bucket of the username.
+     *
+     * @param clientAddress may be null when the connection does not tell, only the username is limited then
+     * @throws TooManyRequestsException when either bucket is empty
+     */
+    public void acquire(String username, String clientAddress) {
+        if (!enabled) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        if (clientAddress != null) {
+            perAddress.acquire(clientAddress, now);
+        }
+        // usernames are matched case-insensitively by MySQL, so are their buckets
+        perUser.acquire(username.toLowerCase(Locale.ROOT), now);
+    }
+
+    private static Counter throttledCounter(MeterRegistry meterRegistry, String limit) {
+        return Counter.builder("auth.signin.throttled")
+                .description("Signin attempts turned away by the login rate limiter")
+                .tag("limit", limit)
+                .register(meterRegistry);
+    }
+
+    private static class Limit {
+
+        private final long refillNanos;
+        private final long capacityNanos;
+        private final Cache<String, TokenBucket> buckets;
+        private final Counter throttled;
+
+        Limit(int capacity, long refillMs, long maximumKeys, Counter throttled) {
+            this.refillNanos = TimeUnit.MILLISECONDS.toNanos(refillMs);
+            this.capacityNanos = capacity * refillNanos;
+            this.buckets = Caffeine.newBuilder()
+                    .maximumSize(maximumKeys)
+                    .expireAfterAccess(Duration.ofNanos(capacityNanos))
+                    .build();
+            this.throttled = throttled;
+        }
+
+        void acquire(String key, long now) {
+            long waitNanos = buckets.get(key, k -> new TokenBucket(now)).tryTake(now, refillNanos, capacityNanos);
+            if (waitNanos > 0) {
+                throttled.increment();
+                throw new TooManyRequestsException("Error: Too many signin attempts, please retry later.",
+                        Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1)));
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.anto.authservice.security.ratelimit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * The client address of a signin on the reactive profile, where Netty's own forwarded header support is off because it
+ * trusts any peer. X-Forwarded-For is only read when the peer matches {@code app.loginRateLimit.trustedProxies}, and
+ * then from the right, skipping the trusted proxies, like Tomcat's RemoteIpValve does for the servlet stack. Otherwise
+ * a client could name a new address on every attempt and get a fresh bucket each time.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveClientAddressResolver {
+
+    private static final String X_FORWARDED_FOR = "X-Forwarded-For";
+
+    private final Pattern trustedProxies;
+
+    public ReactiveClientAddressResolver(@Value("${app.loginRateLimit.trustedProxies}") String trustedProxies) {
+        this.trustedProxies = StringUtils.hasText(trustedProxies) ? Pattern.compile(trustedProxies) : null;
+    }
+
+    /**
+     * @return null when the connection does not tell
+     */
+    public String resolve(ServerHttpRequest request) {
+        InetSocketAddress remoteAddress = request.getRemoteAddress();
+        if (remoteAddress == null || remoteAddress.getAddress() == null) {
+            return null;
+        }
+
+        String address = remoteAddress.getAddress().getHostAddress();
+        if (!isTrusted(address)) {
+            return address;
+        }
+
+        List<String> forwardedFor = request.getHeaders().getValuesAsList(X_FORWARDED_FOR);
+        for (int i = forwardedFor.size() - 1; i >= 0; i--) {
+            address = forwardedFor.get(i).trim();
+            if (!isTrusted(address)) {
+                return address;
+            }
+        }
+
+        return address;
+    }
+
+    private boolean isTrusted(String address) {
+        return trustedProxies != null && trustedProxies.matcher(address).matches();
+    }
+}
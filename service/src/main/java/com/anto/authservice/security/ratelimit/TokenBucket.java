@@ -0,0 +1,36 @@
+package com.anto.authservice.security.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A token bucket in its GCRA form: instead of a token count and the time of the last refill it keeps only the instant
+ * at which the bucket is full again, so taking a token is a single compare-and-set.
+ */
+class TokenBucket {
+
+    // System.nanoTime() at which every taken token has been refilled
+    private final AtomicLong fullAt;
+
+    TokenBucket(long now) {
+        this.fullAt = new AtomicLong(now);
+    }
+
+    /**
+     * @param refillNanos    time for one token to come back
+     * @param capacityNanos  time for a whole empty bucket to refill, capacity times refillNanos
+     * @return 0 when a token was taken, otherwise the nanoseconds until one is available
+     */
+    long tryTake(long now, long refillNanos, long capacityNanos) {
+        while (true) {
+            long current = fullAt.get();
+            long next = Math.max(current, now) + refillNanos;
+            long debt = next - now;
+            if (debt > capacityNanos) {
+                return debt - capacityNanos;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+}
@@ -1,51 +1,113 @@
 package com.anto.authservice.service;
 
 import com.anto.authservice.exception.ApiException;
-import com.anto.authservice.exception.TokenRefreshException;
+import com.anto.authservice.metrics.TaggedTimers;
 import com.anto.authservice.model.ERole;
-import com.anto.authservice.model.RefreshToken;
 import com.anto.authservice.model.Role;
 import com.anto.authservice.model.User;
 import com.anto.authservice.model.payload.request.LoginRequest;
+import com.anto.authservice.model.payload.request.SignoutRequest;
 import com.anto.authservice.model.payload.request.SignupRequest;
 import com.anto.authservice.model.payload.request.TokenRefreshRequest;
+import com.anto.authservice.model.payload.request.UpdateRolesRequest;
 import com.anto.authservice.model.payload.response.JwtResponse;
 import com.anto.authservice.model.payload.response.MessageResponse;
 import com.anto.authservice.model.payload.response.TokenRefreshResponse;
-import com.anto.authservice.repository.RoleRepository;
 import com.anto.authservice.repository.UserRepository;
 import com.anto.authservice.security.jwt.JwtUtils;
+import com.anto.authservice.security.jwt.TokenRevocationList;
+import com.anto.authservice.security.ratelimit.LoginRateLimiter;
+import com.anto.authservice.service.invalidation.InvalidationBus;
+import com.anto.authservice.service.invalidation.InvalidationEvent;
+import com.anto.authservice.service.token.RotatedRefreshToken;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.validation.Valid;
-import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 @Service
-@RequiredArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class AuthService {
 
     private final AuthenticationManager authenticationManager;
     private final RefreshTokenService refreshTokenService;
     private final UserRepository userRepository;
-    private final RoleRepository roleRepository;
+    private final RoleRegistry roleRegistry;
     private final PasswordEncoder encoder;
     private final JwtUtils jwtUtils;
+    private final PasswordHashingExecutor passwordHashingExecutor;
+    private final TokenRevocationList tokenRevocationList;
+    private final InvalidationBus invalidationBus;
+    private final LoginRateLimiter loginRateLimiter;
+    private final TaggedTimers signinTimers;
+
+    public AuthService(
+            AuthenticationManager authenticationManager,
+            RefreshTokenService refreshTokenService,
+            UserRepository userRepository,
+            RoleRegistry roleRegistry,
+            PasswordEncoder encoder,
+            JwtUtils jwtUtils,
+            PasswordHashingExecutor passwordHashingExecutor,
+            TokenRevocationList tokenRevocationList,
+            InvalidationBus invalidationBus,
+            LoginRateLimiter loginRateLimiter,
+            MeterRegistry meterRegistry) {
+        this.authenticationManager = authenticationManager;
+        this.refreshTokenService = refreshTokenService;
+        this.userRepository = userRepository;
+        this.roleRegistry = roleRegistry;
+        this.encoder = encoder;
+        this.jwtUtils = jwtUtils;
+        this.passwordHashingExecutor = passwordHashingExecutor;
+        this.tokenRevocationList = tokenRevocationList;
+        this.invalidationBus = invalidationBus;
+        this.loginRateLimiter = loginRateLimiter;
+        this.signinTimers = new TaggedTimers(meterRegistry, "auth.signin",
+                "Signin from submission to the hashing pool until the tokens are issued", "outcome",
+                "success", "bad_credentials", "error");
+    }
+
+    /**
+     * @param clientAddress the address the attempt is rate limited by next to the username, null when unknown
+     */
+    public CompletableFuture<JwtResponse> signin(@Valid LoginRequest loginRequest, String clientAddress) {
+        // before the user is loaded or anything is queued for hashing
+        loginRateLimiter.acquire(loginRequest.getUsername(), clientAddress);
 
-    public JwtResponse signin(@Valid LoginRequest loginRequest) {
+        long start = System.nanoTime();
+        return passwordHashingExecutor.submit(() -> authenticate(loginRequest))
+                .whenComplete((response, error) -> signinTimers.record(outcome(error), start));
+    }
+
+    private static String outcome(Throwable error) {
+        if (error == null) {
+            return "success";
+        }
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof AuthenticationException ? "bad_credentials" : "error";
+    }
+
+    private JwtResponse authenticate(LoginRequest loginRequest) {
         Authentication authentication = authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(loginRequest.getUsername(), loginRequest.getPassword()));
 
-        SecurityContextHolder.getContext().setAuthentication(authentication);
         String jwt = jwtUtils.generateJwt(authentication);
 
         UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
@@ -53,26 +115,23 @@ public class AuthService {
                 .map(GrantedAuthority::getAuthority)
                 .collect(Collectors.toList());
 
-        refreshTokenService.deleteByUserId(userDetails.getId());
-        RefreshToken refreshToken = refreshTokenService.createRefreshToken(userDetails.getId());
+        String refreshToken = refreshTokenService.createRefreshToken(userDetails);
 
         return new JwtResponse(
                 jwt,
-                refreshToken.getToken(),
+                refreshToken,
                 userDetails.getId(),
                 userDetails.getUsername(),
                 userDetails.getEmail(),
                 roles);
     }
 
-    public MessageResponse signup(@Valid SignupRequest signUpRequest) {
-        if (userRepository.existsByUsername(signUpRequest.getUsername())) {
-            throw new ApiException("Error: Username is already taken!");
-        }
+    public CompletableFuture<MessageResponse> signup(@Valid SignupRequest signUpRequest) {
+        return passwordHashingExecutor.submit(() -> register(signUpRequest));
+    }
 
-        if (userRepository.existsByEmail(signUpRequest.getEmail())) {
-            throw new ApiException("Error: Email is already in use!");
-        }
+    private MessageResponse register(SignupRequest signUpRequest) {
+        checkAvailable(signUpRequest);
 
         User user = new User(signUpRequest.getUsername(),
                 signUpRequest.getEmail(),
@@ -83,47 +142,89 @@ public class AuthService {
         Set<Role> roles = new HashSet<>();
 
         if (requestRoles == null) {
-            Role userRole = getRoleFromDb(ERole.ROLE_USER.getRoleString());
-            roles.add(userRole);
+            roles.add(roleRegistry.get(ERole.ROLE_USER));
         } else {
-            requestRoles.forEach(role -> roles.add(getRoleFromDb(role)));
+            requestRoles.forEach(role -> roles.add(roleRegistry.get(ERole.fromString(role))));
         }
 
         user.setRoles(roles);
-        userRepository.save(user);
+        try {
+            userRepository.save(user);
+        } catch (DataIntegrityViolationException e) {
+            // a concurrent signup took the username or the email after the check
+            checkAvailable(signUpRequest);
+            throw e;
+        }
+        invalidationBus.publish(InvalidationEvent.user(user.getUsername()));
 
         return new MessageResponse("User registered successfully!");
     }
 
-    private Role getRoleFromDb(String role) {
-        ERole eRole = ERole.fromString(role);
-        switch (eRole) {
-            case ROLE_ADMIN -> {
-                return roleRepository.findByName(ERole.ROLE_ADMIN)
-                        .orElseThrow(() -> new ApiException("Error: Role is not found."));
-            }
-            case ROLE_MODERATOR -> {
-                return roleRepository.findByName(ERole.ROLE_MODERATOR)
-                        .orElseThrow(() -> new ApiException("Error: Role is not found."));
-            }
-            case ROLE_USER -> {
-                return roleRepository.findByName(ERole.ROLE_USER)
-                        .orElseThrow(() -> new ApiException("Error: Role is not found."));
-            }
-            default -> throw new ApiException("Error: Role is not found.");
+    /**
+     * Checks the username and the email in one query, for a precise error. Only the unique constraints on users keep
+     * two concurrent signups with the same username or email from both being inserted.
+     */
+    private void checkAvailable(SignupRequest signUpRequest) {
+        List<String> taken = userRepository.findUsernamesByUsernameOrEmail(signUpRequest.getUsername(), signUpRequest.getEmail());
+        if (taken.stream().anyMatch(username -> username.equalsIgnoreCase(signUpRequest.getUsername()))) {
+            throw new ApiException("Error: Username is already taken!");
+        }
+
+        if (!taken.isEmpty()) {
+            throw new ApiException("Error: Email is already in use!");
         }
     }
 
+    /**
+     * Revokes the access token until its expiry and, when given, ends the refresh token session.
+     */
+    public MessageResponse signout(String authorization, @Valid SignoutRequest signoutRequest) {
+        Claims claims = Optional.ofNullable(jwtUtils.getJwtFromHeader(authorization))
+                .flatMap(jwtUtils::getClaimsFromJwt)
+                .orElseThrow(() -> new ApiException("Error: Access token is not valid."));
+
+        if (claims.getId() != null) {
+            tokenRevocationList.revoke(claims.getId(), claims.getExpiration().toInstant());
+            invalidationBus.publish(InvalidationEvent.accessToken(claims.getId(), claims.getExpiration().toInstant()));
+        }
+        if (signoutRequest != null && signoutRequest.getRefreshToken() != null) {
+            refreshTokenService.deleteByToken(signoutRequest.getRefreshToken());
+        }
+
+        return new MessageResponse("Signed out successfully!");
+    }
+
+    public MessageResponse updateRoles(String username, @Valid UpdateRolesRequest updateRolesRequest) {
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new ApiException("Error: User is not found."));
+
+        Set<Role> roles = new HashSet<>();
+        updateRolesRequest.getRoles().forEach(role -> roles.add(roleRegistry.get(ERole.fromString(role))));
+
+        user.setRoles(roles);
+        userRepository.save(user);
+        invalidationBus.publish(InvalidationEvent.user(user.getUsername()));
+
+        return new MessageResponse("User roles updated successfully!");
+    }
+
+    /**
+     * Re-reads the roles table on every instance, after rows were added to it by hand.
+     */
+    public MessageResponse reloadRoles() {
+        invalidationBus.publish(InvalidationEvent.roles());
+
+        return new MessageResponse("Roles reloaded successfully!");
+    }
+
     public TokenRefreshResponse refreshToken(TokenRefreshRequest tokenRefreshRequest) {
         String requestRefreshToken = tokenRefreshRequest.getRefreshToken();
 
-        return refreshTokenService.findByToken(requestRefreshToken)
-                .map(refreshTokenService::verifyExpiration)
-                .map(RefreshToken::getUser)
-                .map(user -> {
-                    String token = jwtUtils.generateTokenFromUsername(user.getUsername());
-                    return new TokenRefreshResponse(token, requestRefreshToken);
-                })
-                .orElseThrow(() -> new TokenRefreshException(requestRefreshToken, "Refresh token is not in database!"));
+        RotatedRefreshToken rotated = refreshTokenService.rotateRefreshToken(requestRefreshToken);
+        String token = jwtUtils.isStatelessAuth()
+                ? jwtUtils.generateTokenFromUser(rotated.user())
+                : jwtUtils.generateTokenFromUsername(rotated.user().getUsername());
+
+        return new TokenRefreshResponse(token, rotated.token());
     }
 }
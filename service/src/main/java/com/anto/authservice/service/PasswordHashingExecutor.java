@@ -0,0 +1,59 @@
+package com.anto.authservice.service;
+
+import com.anto.authservice.exception.ServiceOverloadedException;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Runs the bcrypt heavy parts of signin and signup off the servlet threads, on a pool sized to the cores.
+ * The queue is bounded, once it is full callers are turned away with a 503 instead of piling up.
+ */
+@Component
+public class PasswordHashingExecutor {
+
+    private final ThreadPoolExecutor executor;
+    // the same pool for the reactive profile, rejections surface as RejectedExecutionException
+    private final Scheduler scheduler;
+    private final long retryAfterSeconds;
+
+    public PasswordHashingExecutor(
+            @Value("${app.passwordHashing.threads}") int threads,
+            @Value("${app.passwordHashing.queueCapacity}") int queueCapacity,
+            @Value("${app.passwordHashing.retryAfterSeconds}") long retryAfterSeconds) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("password-hashing-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.scheduler = Schedulers.fromExecutorService(executor, "password-hashing");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            throw overloaded();
+        }
+    }
+
+    public Scheduler scheduler() {
+        return scheduler;
+    }
+
+    public ServiceOverloadedException overloaded() {
+        return new ServiceOverloadedException("Error: Too many authentication requests, please retry later.", retryAfterSeconds);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,159 @@
+package com.anto.authservice.service;
+
+import com.anto.authservice.exception.ApiException;
+import com.anto.authservice.model.ERole;
+import com.anto.authservice.model.payload.request.LoginRequest;
+import com.anto.authservice.model.payload.request.SignoutRequest;
+import com.anto.authservice.model.payload.request.SignupRequest;
+import com.anto.authservice.model.payload.request.TokenRefreshRequest;
+import com.anto.authservice.model.payload.response.JwtResponse;
+import com.anto.authservice.model.payload.response.MessageResponse;
+import com.anto.authservice.model.payload.response.TokenRefreshResponse;
+import com.anto.authservice.repository.ReactiveUserRepository;
+import com.anto.authservice.security.jwt.JwtUtils;
+import com.anto.authservice.security.jwt.TokenRevocationList;
+import com.anto.authservice.security.jwt.VerifiedToken;
+import com.anto.authservice.security.ratelimit.LoginRateLimiter;
+import com.anto.authservice.service.invalidation.InvalidationBus;
+import com.anto.authservice.service.invalidation.InvalidationEvent;
+import io.jsonwebtoken.Claims;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.EnumSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * {@link AuthService} for the reactive profile, with the same request and response payloads. Lookups go through
+ * R2DBC and password hashing runs on the bounded {@link PasswordHashingExecutor} pool, so the event loop never blocks.
+ * Revoking an access token and publishing invalidation events still go through JPA, on the bounded elastic scheduler.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+public class ReactiveAuthService {
+
+    private final ReactiveAuthenticationManager passwordAuthenticationManager;
+    private final ReactiveRefreshTokenService refreshTokenService;
+    private final ReactiveUserRepository userRepository;
+    private final PasswordEncoder encoder;
+    private final JwtUtils jwtUtils;
+    private final PasswordHashingExecutor passwordHashingExecutor;
+    private final TokenRevocationList tokenRevocationList;
+    private final InvalidationBus invalidationBus;
+    private final TransactionalOperator reactiveTransactionalOperator;
+    private final LoginRateLimiter loginRateLimiter;
+
+    public Mono<JwtResponse> signin(LoginRequest loginRequest, String clientAddress) {
+        return Mono.fromRunnable(() -> loginRateLimiter.acquire(loginRequest.getUsername(), clientAddress))
+                .then(Mono.defer(() -> passwordAuthenticationManager.authenticate(
+                        UsernamePasswordAuthenticationToken.unauthenticated(loginRequest.getUsername(), loginRequest.getPassword()))))
+                .onErrorMap(RejectedExecutionException.class, e -> passwordHashingExecutor.overloaded())
+                // the servlet DaoAuthenticationProvider's wording
+                .onErrorMap(BadCredentialsException.class, e -> new BadCredentialsException("Bad credentials", e))
+                .flatMap(authentication -> {
+                    UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
+                    String jwt = jwtUtils.generateJwt(authentication);
+
+                    return refreshTokenService.createRefreshToken(userDetails)
+                            .map(refreshToken -> new JwtResponse(
+                                    jwt,
+                                    refreshToken,
+                                    userDetails.getId(),
+                                    userDetails.getUsername(),
+                                    userDetails.getEmail(),
+                                    userDetails.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList()));
+                });
+    }
+
+    public Mono<MessageResponse> signup(SignupRequest signUpRequest) {
+        Set<ERole> roles = EnumSet.noneOf(ERole.class);
+        if (signUpRequest.getRoles() == null) {
+            roles.add(ERole.ROLE_USER);
+        } else {
+            signUpRequest.getRoles().forEach(role -> roles.add(ERole.fromString(role)));
+        }
+
+        return checkAvailable(signUpRequest)
+                .then(Mono.fromCallable(() -> encoder.encode(signUpRequest.getPassword()))
+                        .subscribeOn(passwordHashingExecutor.scheduler())
+                        .onErrorMap(RejectedExecutionException.class, e -> passwordHashingExecutor.overloaded()))
+                .flatMap(password -> userRepository.insert(signUpRequest.getUsername(), signUpRequest.getEmail(), password)
+                        .flatMap(userId -> userRepository.insertRoles(userId, roles))
+                        .flatMap(granted -> granted == roles.size()
+                                ? Mono.just(granted)
+                                : Mono.error(new ApiException("Error: Role is not found.")))
+                        .as(reactiveTransactionalOperator::transactional))
+                // a concurrent signup took the username or the email after the check
+                .onErrorResume(DataIntegrityViolationException.class, e -> checkAvailable(signUpRequest).then(Mono.error(e)))
+                .then(publish(InvalidationEvent.user(signUpRequest.getUsername())))
+                .thenReturn(new MessageResponse("User registered successfully!"));
+    }
+
+    /**
+     * Revokes the access token until its expiry and, when given, ends the refresh token session.
+     */
+    public Mono<MessageResponse> signout(String authorization, SignoutRequest signoutRequest) {
+        // /api/auth/signout is only reached with a token the authentication filter found not revoked
+        Claims claims = Optional.ofNullable(jwtUtils.getJwtFromHeader(authorization))
+                .flatMap(jwtUtils::verifyJwtUncheckedForRevocation)
+                .map(VerifiedToken::claims)
+                .orElse(null);
+        if (claims == null) {
+            return Mono.error(new ApiException("Error: Access token is not valid."));
+        }
+
+        Mono<Void> revoke = claims.getId() == null ? Mono.empty() : Mono.<Void>fromRunnable(() -> {
+            tokenRevocationList.revoke(claims.getId(), claims.getExpiration().toInstant());
+            invalidationBus.publish(InvalidationEvent.accessToken(claims.getId(), claims.getExpiration().toInstant()));
+        }).subscribeOn(Schedulers.boundedElastic());
+        Mono<Void> endSession = signoutRequest != null && signoutRequest.getRefreshToken() != null
+                ? refreshTokenService.deleteByToken(signoutRequest.getRefreshToken())
+                : Mono.empty();
+
+        return revoke.then(endSession).thenReturn(new MessageResponse("Signed out successfully!"));
+    }
+
+    public Mono<TokenRefreshResponse> refreshToken(TokenRefreshRequest tokenRefreshRequest) {
+        return refreshTokenService.rotateRefreshToken(tokenRefreshRequest.getRefreshToken())
+                .map(rotated -> new TokenRefreshResponse(
+                        jwtUtils.isStatelessAuth()
+                                ? jwtUtils.generateTokenFromUser(rotated.user())
+                                : jwtUtils.generateTokenFromUsername(rotated.user().getUsername()),
+                        rotated.token()));
+    }
+
+    /**
+     * Same single query and errors as {@link AuthService}; the unique constraints on users decide concurrent signups.
+     */
+    private Mono<Void> checkAvailable(SignupRequest signUpRequest) {
+        return userRepository.findByUsernameOrEmail(signUpRequest.getUsername(), signUpRequest.getEmail())
+                .collectList()
+                .flatMap(existing -> {
+                    if (existing.stream().anyMatch(user -> user.getUsername().equalsIgnoreCase(signUpRequest.getUsername()))) {
+                        return Mono.error(new ApiException("Error: Username is already taken!"));
+                    }
+                    if (!existing.isEmpty()) {
+                        return Mono.error(new ApiException("Error: Email is already in use!"));
+                    }
+
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<Void> publish(InvalidationEvent event) {
+        return Mono.<Void>fromRunnable(() -> invalidationBus.publish(event)).subscribeOn(Schedulers.boundedElastic());
+    }
+}
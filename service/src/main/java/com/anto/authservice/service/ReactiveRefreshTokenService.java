@@ -0,0 +1,112 @@
+package com.anto.authservice.service;
+
+import com.anto.authservice.exception.TokenRefreshException;
+import com.anto.authservice.model.ERole;
+import com.anto.authservice.model.RefreshTokenUser;
+import com.anto.authservice.repository.ReactiveRefreshTokenRepository;
+import com.anto.authservice.service.token.RefreshTokenEntry;
+import com.anto.authservice.service.token.RefreshTokenOwner;
+import com.anto.authservice.service.token.RefreshTokens;
+import com.anto.authservice.service.token.RotatedRefreshToken;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * {@link RefreshTokenService} over R2DBC: the same token families, rotation and reuse detection on the refreshtoken
+ * table, so sessions started on either stack can be refreshed on the other.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+@Slf4j
+public class ReactiveRefreshTokenService {
+
+    private final ReactiveRefreshTokenRepository refreshTokenRepository;
+
+    @Value("${app.jwt.refreshExpirationMs}")
+    private Long refreshTokenDurationMs;
+
+    /**
+     * Starts a new session (token family) for the user, its other sessions stay valid.
+     */
+    public Mono<String> createRefreshToken(UserDetailsImpl user) {
+        byte[] familyId = RefreshTokens.newFamilyId();
+        String token = RefreshTokens.generate(familyId, 0);
+
+        return refreshTokenRepository.insert(new RefreshTokenEntry(RefreshTokens.hash(token), familyId, 0, user.getId(),
+                        user.getUsername(), Instant.now().plusMillis(refreshTokenDurationMs)))
+                .thenReturn(token);
+    }
+
+    /**
+     * Exchanges the current token of a session for the next one, see {@link RefreshTokenService#rotateRefreshToken}.
+     */
+    public Mono<RotatedRefreshToken> rotateRefreshToken(String token) {
+        byte[] tokenHash = RefreshTokens.hash(token);
+
+        return refreshTokenRepository.findUserByTokenHash(tokenHash)
+                .collectList()
+                .flatMap(rows -> rows.isEmpty() ? unknownToken(token) : rotate(token, tokenHash, owner(rows)));
+    }
+
+    /**
+     * Ends the session of the given token, if it is still its current one.
+     */
+    public Mono<Void> deleteByToken(String token) {
+        return refreshTokenRepository.deleteByTokenHash(RefreshTokens.hash(token)).then();
+    }
+
+    private Mono<RotatedRefreshToken> unknownToken(String token) {
+        return RefreshTokens.decode(token)
+                .map(family -> refreshTokenRepository.revokeFamily(family.familyId(), family.generation()))
+                .orElse(Mono.just(0L))
+                .flatMap(revoked -> Mono.error(revoked > 0
+                        ? reuseDetected(token)
+                        : new TokenRefreshException(token, "Refresh token is not in database!")));
+    }
+
+    private Mono<RotatedRefreshToken> rotate(String token, byte[] tokenHash, RefreshTokenOwner owner) {
+        if (owner.revoked()) {
+            return Mono.error(new TokenRefreshException(token, "Refresh token was revoked. Please make a new signin request"));
+        }
+        if (owner.expiryDate().compareTo(Instant.now()) < 0) {
+            return refreshTokenRepository.deleteByTokenHash(tokenHash)
+                    .then(Mono.error(new TokenRefreshException(token, "Refresh token was expired. Please make a new signin request")));
+        }
+
+        String nextToken = RefreshTokens.generate(owner.familyId(), owner.generation() + 1);
+        return refreshTokenRepository.rotate(tokenHash, RefreshTokens.hash(nextToken))
+                .flatMap(rotated -> rotated == 1
+                        ? Mono.just(new RotatedRefreshToken(owner.user(), nextToken))
+                        // the same token was presented twice at once, only one of them can be the legitimate client
+                        : refreshTokenRepository.revokeFamily(owner.familyId(), owner.generation())
+                                .then(Mono.error(reuseDetected(token))));
+    }
+
+    private static RefreshTokenOwner owner(List<RefreshTokenUser> rows) {
+        RefreshTokenUser owner = rows.get(0);
+        List<GrantedAuthority> authorities = rows.stream()
+                .map(RefreshTokenUser::role)
+                .filter(Objects::nonNull)
+                .map(ERole::getAuthority)
+                .toList();
+
+        return new RefreshTokenOwner(
+                new UserDetailsImpl(owner.userId(), owner.username(), owner.email(), null, authorities),
+                owner.familyId(), owner.generation(), owner.revoked(), owner.expiryDate());
+    }
+
+    private static TokenRefreshException reuseDetected(String token) {
+        log.warn("Reuse of a rotated refresh token, revoking its session");
+        return new TokenRefreshException(token, "Refresh token was already used, its session is revoked. Please make a new signin request");
+    }
+}
@@ -0,0 +1,62 @@
+package com.anto.authservice.service;
+
+import com.anto.authservice.config.CacheConfig;
+import com.anto.authservice.repository.ReactiveUserRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsPasswordService;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+/**
+ * The reactive counterpart of {@link UserDetailsServiceImpl}. It reads and fills the same user and unknown user caches,
+ * which {@link UserDetailsServiceImpl#onInvalidation} keeps evicting in the reactive profile too.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUserDetailsServiceImpl implements ReactiveUserDetailsService, ReactiveUserDetailsPasswordService {
+
+    private final ReactiveUserRepository userRepository;
+    private final Cache userCache;
+    private final Cache unknownUsers;
+
+    public ReactiveUserDetailsServiceImpl(ReactiveUserRepository userRepository, CacheManager cacheManager) {
+        this.userRepository = userRepository;
+        this.userCache = cacheManager.getCache(CacheConfig.USER_CACHE);
+        this.unknownUsers = cacheManager.getCache(CacheConfig.UNKNOWN_USER_CACHE);
+    }
+
+    @Override
+    public Mono<UserDetails> findByUsername(String username) {
+        UserDetailsImpl cached = userCache.get(CacheConfig.userKey(username), UserDetailsImpl.class);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        if (unknownUsers.get(CacheConfig.userKey(username)) != null) {
+            return Mono.empty();
+        }
+
+        return userRepository.findByUsername(username)
+                .doOnSuccess(user -> {
+                    if (user != null) {
+                        userCache.put(CacheConfig.userKey(username), user);
+                    } else {
+                        unknownUsers.put(CacheConfig.userKey(username), Boolean.TRUE);
+                    }
+                })
+                .cast(UserDetails.class);
+    }
+
+    @Override
+    public Mono<UserDetails> updatePassword(UserDetails user, String newPassword) {
+        UserDetailsImpl userDetails = (UserDetailsImpl) user;
+
+        return userRepository.updatePassword(user.getUsername(), newPassword)
+                .doOnSuccess(updated -> userCache.evict(CacheConfig.userKey(user.getUsername())))
+                .thenReturn(new UserDetailsImpl(userDetails.getId(), userDetails.getUsername(), userDetails.getEmail(),
+                        newPassword, userDetails.getAuthorities()));
+    }
+}
@@ -0,0 +1,46 @@
+package com.anto.authservice.service;
+
+import com.anto.authservice.service.token.RefreshTokenStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+
+/**
+ * Deletes expired refresh tokens in the background, so they do not pile up in the store and its token index.
+ */
+@Component
+@Slf4j
+public class RefreshTokenPurger {
+
+    private final RefreshTokenStore refreshTokenStore;
+    private final Counter purgedRows;
+    private final Timer purgeDuration;
+
+    public RefreshTokenPurger(RefreshTokenStore refreshTokenStore, MeterRegistry meterRegistry) {
+        this.refreshTokenStore = refreshTokenStore;
+        this.purgedRows = Counter.builder("refreshtoken.purge.rows")
+                .description("Expired refresh tokens deleted by the purger")
+                .register(meterRegistry);
+        this.purgeDuration = Timer.builder("refreshtoken.purge.duration")
+                .description("Time taken by a purge run")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${app.refreshToken.purgeIntervalMs}", fixedDelayString = "${app.refreshToken.purgeIntervalMs}")
+    public void purgeExpired() {
+        int purged = purgeDuration.record(this::purge);
+        purgedRows.increment(purged);
+        if (purged > 0) {
+            log.info("Purged {} expired refresh tokens", purged);
+        }
+    }
+
+    private int purge() {
+        return refreshTokenStore.purgeExpired(Instant.now());
+    }
+}
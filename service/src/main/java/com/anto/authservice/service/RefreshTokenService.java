@@ -1,53 +1,123 @@
 package com.anto.authservice.service;
 
 import com.anto.authservice.exception.TokenRefreshException;
-import com.anto.authservice.model.RefreshToken;
-import com.anto.authservice.repository.RefreshTokenRepository;
-import com.anto.authservice.repository.UserRepository;
-import lombok.RequiredArgsConstructor;
+import com.anto.authservice.metrics.TaggedTimers;
+import com.anto.authservice.service.token.RefreshTokenEntry;
+import com.anto.authservice.service.token.RefreshTokenOwner;
+import com.anto.authservice.service.token.RefreshTokenStore;
+import com.anto.authservice.service.token.RefreshTokens;
+import com.anto.authservice.service.token.RotatedRefreshToken;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
 import java.util.Optional;
-import java.util.UUID;
 
-@RequiredArgsConstructor
 @Service
+@Slf4j
 public class RefreshTokenService {
-    private final RefreshTokenRepository refreshTokenRepository;
-    private final UserRepository userRepository;
+    private final RefreshTokenStore refreshTokenStore;
+    // refreshtoken.store by operation, auth.refresh by outcome
+    private final TaggedTimers storeTimers;
+    private final TaggedTimers refreshTimers;
 
     @Value("${app.jwt.refreshExpirationMs}")
     private Long refreshTokenDurationMs;
 
-    public Optional<RefreshToken> findByToken(String token) {
-        return refreshTokenRepository.findByToken(token);
+    public RefreshTokenService(RefreshTokenStore refreshTokenStore, MeterRegistry meterRegistry) {
+        this.refreshTokenStore = refreshTokenStore;
+        this.storeTimers = new TaggedTimers(meterRegistry, "refreshtoken.store", "Refresh token store calls",
+                "operation", "find_owner", "create", "rotate", "revoke_family", "delete");
+        this.refreshTimers = new TaggedTimers(meterRegistry, "auth.refresh", "Refresh token rotations",
+                "outcome", "success", "not_found", "revoked", "expired", "reused", "error");
     }
 
-    public RefreshToken createRefreshToken(Long userId) {
-        RefreshToken refreshToken = new RefreshToken();
+    /**
+     * Starts a new session (token family) for the user, its other sessions stay valid.
+     */
+    public String createRefreshToken(UserDetailsImpl user) {
+        byte[] familyId = RefreshTokens.newFamilyId();
+        String token = RefreshTokens.generate(familyId, 0);
+        RefreshTokenEntry entry = new RefreshTokenEntry(RefreshTokens.hash(token), familyId, 0, user.getId(),
+                user.getUsername(), Instant.now().plusMillis(refreshTokenDurationMs));
+        storeTimers.record("create", () -> {
+            refreshTokenStore.create(entry);
+            return null;
+        });
 
-        refreshToken.setUser(userRepository.findById(userId).get());
-        refreshToken.setExpiryDate(Instant.now().plusMillis(refreshTokenDurationMs));
-        refreshToken.setToken(UUID.randomUUID().toString());
-
-        refreshToken = refreshTokenRepository.save(refreshToken);
-        return refreshToken;
+        return token;
     }
 
-    public RefreshToken verifyExpiration(RefreshToken token) {
-        if (token.getExpiryDate().compareTo(Instant.now()) < 0) {
-            refreshTokenRepository.delete(token);
-            throw new TokenRefreshException(token.getToken(), "Refresh token was expired. Please make a new signin request");
+    /**
+     * Exchanges the current token of a session for the next one: an indexed lookup and a conditional update.
+     * A token that is no longer current but belongs to a live session has been used before, by the client or by
+     * someone who copied it, so the whole session is revoked.
+     */
+    public RotatedRefreshToken rotateRefreshToken(String token) {
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            byte[] tokenHash = RefreshTokens.hash(token);
+            Optional<RefreshTokenOwner> found = storeTimers.record("find_owner", () -> refreshTokenStore.findOwner(tokenHash));
+            if (found.isEmpty()) {
+                Optional<RefreshTokens.Family> family = RefreshTokens.decode(token);
+                if (family.isPresent() && revokeFamily(family.get().familyId(), family.get().generation())) {
+                    outcome = "reused";
+                    throw reuseDetected(token);
+                }
+                outcome = "not_found";
+                throw new TokenRefreshException(token, "Refresh token is not in database!");
+            }
+
+            RefreshTokenOwner owner = found.get();
+            if (owner.revoked()) {
+                outcome = "revoked";
+                throw new TokenRefreshException(token, "Refresh token was revoked. Please make a new signin request");
+            }
+            if (owner.expiryDate().compareTo(Instant.now()) < 0) {
+                deleteByHash(tokenHash);
+                outcome = "expired";
+                throw new TokenRefreshException(token, "Refresh token was expired. Please make a new signin request");
+            }
+
+            String nextToken = RefreshTokens.generate(owner.familyId(), owner.generation() + 1);
+            byte[] nextHash = RefreshTokens.hash(nextToken);
+            if (!storeTimers.record("rotate", () -> refreshTokenStore.rotate(tokenHash, nextHash))) {
+                // the same token was presented twice at once, only one of them can be the legitimate client
+                revokeFamily(owner.familyId(), owner.generation());
+                outcome = "reused";
+                throw reuseDetected(token);
+            }
+
+            outcome = "success";
+            return new RotatedRefreshToken(owner.user(), nextToken);
+        } finally {
+            refreshTimers.record(outcome, start);
         }
+    }
 
-        return token;
+    /**
+     * Ends the session of the given token, if it is still its current one.
+     */
+    public void deleteByToken(String token) {
+        deleteByHash(RefreshTokens.hash(token));
+    }
+
+    private void deleteByHash(byte[] tokenHash) {
+        storeTimers.record("delete", () -> {
+            refreshTokenStore.delete(tokenHash);
+            return null;
+        });
+    }
+
+    private boolean revokeFamily(byte[] familyId, int generation) {
+        return storeTimers.record("revoke_family", () -> refreshTokenStore.revokeFamily(familyId, generation));
     }
 
-    @Transactional
-    public int deleteByUserId(Long userId) {
-        return refreshTokenRepository.deleteByUser(userRepository.findById(userId).get());
+    private static TokenRefreshException reuseDetected(String token) {
+        log.warn("Reuse of a rotated refresh token, revoking its session");
+        return new TokenRefreshException(token, "Refresh token was already used, its session is revoked. Please make a new signin request");
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,60 @@
+package com.anto.authservice.service;
+
+import com.anto.authservice.exception.ApiException;
+import com.anto.authservice.model.ERole;
+import com.anto.authservice.model.Role;
+import com.anto.authservice.repository.RoleRepository;
+import com.anto.authservice.service.invalidation.InvalidationEvent;
+import com.anto.authservice.service.invalidation.InvalidationListener;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The roles table, read once into an immutable map. Its rows are seeded and do not change at runtime, so signup
+ * attaches these detached entities to the new user as references, without a query. An admin reload publishes
+ * {@link InvalidationEvent#roles()} to re-read the table on every instance.
+ */
+@Slf4j
+@Component
+public class RoleRegistry implements InvalidationListener {
+
+    private final RoleRepository roleRepository;
+    private volatile Map<ERole, Role> roles;
+
+    public RoleRegistry(RoleRepository roleRepository) {
+        this.roleRepository = roleRepository;
+        reload();
+    }
+
+    public Role get(ERole name) {
+        Role role = roles.get(name);
+        if (role == null) {
+            // seeded after this instance started
+            reload();
+            role = roles.get(name);
+        }
+        if (role == null) {
+            throw new ApiException("Error: Role is not found.");
+        }
+
+        return role;
+    }
+
+    public synchronized void reload() {
+        Map<ERole, Role> loaded = new EnumMap<>(ERole.class);
+        roleRepository.findAll().forEach(role -> loaded.put(role.getName(), role));
+        roles = Collections.unmodifiableMap(loaded);
+        log.info("Loaded roles {}", loaded.keySet());
+    }
+
+    @Override
+    public void onInvalidation(InvalidationEvent event) {
+        if (event.type() == InvalidationEvent.Type.ROLES) {
+            reload();
+        }
+    }
+}
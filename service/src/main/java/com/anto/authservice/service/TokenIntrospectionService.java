@@ -0,0 +1,133 @@
+package com.anto.authservice.service;
+
+import com.anto.authservice.exception.ApiException;
+import com.anto.authservice.exception.ServiceOverloadedException;
+import com.anto.authservice.model.payload.response.TokenIntrospection;
+import com.anto.authservice.model.payload.response.TokenIntrospectionResponse;
+import com.anto.authservice.security.jwt.JwtUtils;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Verifies a batch of access tokens for a gateway in one request, with the same checks as {@link JwtUtils#getClaimsFromJwt}.
+ * A batch is split into one chunk per thread of its own pool, so verification is spread over the cores without a
+ * hand-off per token. The queue is bounded, once it is full callers are turned away with a 503 instead of piling up.
+ */
+@Service
+public class TokenIntrospectionService {
+
+    // below this many tokens a chunk costs more to hand over than to verify on fewer threads
+    private static final int MIN_CHUNK_SIZE = 16;
+
+    private final JwtUtils jwtUtils;
+    private final UserDetailsServiceImpl userDetailsService;
+    private final ThreadPoolExecutor executor;
+    private final int threads;
+    private final int maxBatchSize;
+    private final long retryAfterSeconds;
+    private final Timer batchTimer;
+
+    public TokenIntrospectionService(
+            JwtUtils jwtUtils,
+            UserDetailsServiceImpl userDetailsService,
+            MeterRegistry meterRegistry,
+            @Value("${app.introspection.threads}") int threads,
+            @Value("${app.introspection.queueCapacity}") int queueCapacity,
+            @Value("${app.introspection.retryAfterSeconds}") long retryAfterSeconds,
+            @Value("${app.introspection.maxBatchSize}") int maxBatchSize) {
+        this.jwtUtils = jwtUtils;
+        this.userDetailsService = userDetailsService;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.executor = new ThreadPoolExecutor(this.threads, this.threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("token-introspection-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.maxBatchSize = maxBatchSize;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.batchTimer = Timer.builder("auth.introspect.batch")
+                .description("Introspecting a batch of access tokens, including the wait for the introspection pool")
+                .register(meterRegistry);
+    }
+
+    public CompletableFuture<TokenIntrospectionResponse> introspect(List<String> tokens) {
+        if (tokens.size() > maxBatchSize) {
+            throw new ApiException("Error: At most " + maxBatchSize + " tokens can be introspected at once.");
+        }
+
+        long start = System.nanoTime();
+        TokenIntrospection[] results = new TokenIntrospection[tokens.size()];
+        int chunks = Math.max(1, Math.min(threads, tokens.size() / MIN_CHUNK_SIZE));
+        int chunkSize = (tokens.size() + chunks - 1) / chunks;
+        CompletableFuture<?>[] verified = new CompletableFuture<?>[chunks];
+        Runnable[] tasks = new Runnable[chunks];
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            int from = chunk * chunkSize;
+            int to = Math.min(tokens.size(), from + chunkSize);
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            verified[chunk] = done;
+            tasks[chunk] = () -> {
+                try {
+                    // a cancelled chunk stops at the next token
+                    for (int i = from; i < to && !done.isDone(); i++) {
+                        results[i] = introspect(tokens.get(i));
+                    }
+                    done.complete(null);
+                } catch (Throwable e) {
+                    done.completeExceptionally(e);
+                }
+            };
+            try {
+                executor.execute(tasks[chunk]);
+            } catch (RejectedExecutionException e) {
+                // the batch is turned away as a whole, its chunks handed over so far must not hold on to the pool
+                for (int submitted = 0; submitted < chunk; submitted++) {
+                    executor.remove(tasks[submitted]);
+                    verified[submitted].cancel(false);
+                }
+                throw new ServiceOverloadedException("Error: Too many introspection requests, please retry later.", retryAfterSeconds);
+            }
+        }
+
+        return CompletableFuture.allOf(verified).thenApply(done -> {
+            batchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return new TokenIntrospectionResponse(Arrays.asList(results));
+        });
+    }
+
+    private TokenIntrospection introspect(String token) {
+        Claims claims = jwtUtils.introspectClaims(token);
+        if (claims == null) {
+            return TokenIntrospection.INACTIVE;
+        }
+
+        List<String> roles = jwtUtils.isStatelessAuth() ? jwtUtils.getRolesFromClaims(claims) : null;
+        if (roles == null) {
+            // like AuthTokenFilter, a token without embedded roles stands for the current roles of its user
+            try {
+                roles = userDetailsService.loadUserByUsername(claims.getSubject()).getAuthorities().stream()
+                        .map(GrantedAuthority::getAuthority)
+                        .toList();
+            } catch (UsernameNotFoundException e) {
+                return TokenIntrospection.INACTIVE;
+            }
+        }
+
+        return new TokenIntrospection(true, claims.getSubject(), roles, claims.getExpiration().getTime() / 1000);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
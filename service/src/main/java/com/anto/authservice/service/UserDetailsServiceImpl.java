@@ -1,27 +1,90 @@
 package com.anto.authservice.service;
 
+import com.anto.authservice.config.CacheConfig;
+import com.anto.authservice.metrics.TaggedTimers;
 import com.anto.authservice.repository.UserRepository;
 import com.anto.authservice.model.User;
-import lombok.RequiredArgsConstructor;
+import com.anto.authservice.service.invalidation.InvalidationEvent;
+import com.anto.authservice.service.invalidation.InvalidationListener;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Optional;
+
 @Service
-@RequiredArgsConstructor
-public class UserDetailsServiceImpl implements UserDetailsService {
+public class UserDetailsServiceImpl implements UserDetailsService, UserDetailsPasswordService, InvalidationListener {
 
     private final UserRepository userRepository;
+    private final TaggedTimers loadTimers;
+    private final Cache unknownUsers;
+
+    public UserDetailsServiceImpl(UserRepository userRepository, CacheManager cacheManager, MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.unknownUsers = cacheManager.getCache(CacheConfig.UNKNOWN_USER_CACHE);
+        this.loadTimers = new TaggedTimers(meterRegistry, "auth.user.load",
+                "Loading a user with its roles from the database, on a user cache miss", "outcome", "success", "not_found");
+    }
 
+    /**
+     * Only cache misses get here, so the auth.user.load timer measures database lookups. A username that was just
+     * found missing is answered from the unknown user cache until a signup with it or the cache's short ttl.
+     */
     @Override
     @Transactional
+    @Cacheable(cacheNames = CacheConfig.USER_CACHE, key = "T(com.anto.authservice.config.CacheConfig).userKey(#username)")
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User Not Found with username: " + username));
+        if (unknownUsers.get(CacheConfig.userKey(username)) != null) {
+            throw new UsernameNotFoundException("User Not Found with username: " + username);
+        }
+
+        long start = System.nanoTime();
+        Optional<User> user = userRepository.findByUsername(username);
+        if (user.isEmpty()) {
+            loadTimers.record("not_found", start);
+            unknownUsers.put(CacheConfig.userKey(username), Boolean.TRUE);
+            throw new UsernameNotFoundException("User Not Found with username: " + username);
+        }
+
+        UserDetailsImpl userDetails = UserDetailsImpl.build(user.get());
+        loadTimers.record("success", start);
+        return userDetails;
+    }
 
-        return UserDetailsImpl.build(user);
+    /**
+     * Called by the authentication provider after a successful signin whose stored hash uses an outdated
+     * algorithm or cost, with the password rehashed by the current encoder.
+     */
+    @Override
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.USER_CACHE, key = "T(com.anto.authservice.config.CacheConfig).userKey(#user.username)")
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        userRepository.updatePassword(user.getUsername(), newPassword);
+        UserDetailsImpl userDetails = (UserDetailsImpl) user;
+
+        return new UserDetailsImpl(userDetails.getId(), userDetails.getUsername(), userDetails.getEmail(), newPassword, userDetails.getAuthorities());
+    }
+
+    /**
+     * Drops the cached details of a user after a committed change to it or its roles, here and on the other instances.
+     * A signup publishes the same event, which ends the username's entry in the unknown user cache, and a bulk import
+     * clears that cache.
+     */
+    @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = {CacheConfig.USER_CACHE, CacheConfig.UNKNOWN_USER_CACHE}, key = "T(com.anto.authservice.config.CacheConfig).userKey(#event.key())", condition = "#event.type().name() == 'USER'"),
+            @CacheEvict(cacheNames = CacheConfig.UNKNOWN_USER_CACHE, allEntries = true, condition = "#event.type().name() == 'USERS_IMPORTED'")
+    })
+    public void onInvalidation(InvalidationEvent event) {
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,365 @@
+package com.anto.authservice.service;
+
+import com.anto.authservice.exception.ApiException;
+import com.anto.authservice.exception.ServiceOverloadedException;
+import com.anto.authservice.model.ERole;
+import com.anto.authservice.model.payload.request.SignupRequest;
+import com.anto.authservice.model.payload.response.UserImportError;
+import com.anto.authservice.model.payload.response.UserImportResponse;
+import com.anto.authservice.repository.UserBatchRepository;
+import com.anto.authservice.repository.UserBatchRepository.ExistingUser;
+import com.anto.authservice.repository.UserBatchRepository.NewUser;
+import com.anto.authservice.service.invalidation.InvalidationBus;
+import com.anto.authservice.service.invalidation.InvalidationEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Imports users from NDJSON, one signup payload per line, to onboard a tenant in one request. The stream is read in
+ * chunks: a chunk is validated, checked against the existing users in one query, hashed on this service's own pool
+ * and inserted with JDBC batches in one transaction. A line that fails is reported with its number and skipped, the
+ * rest of the import goes on.
+ * <p>
+ * Only {@code app.userImport.maxConcurrent} imports run at a time and each reads at most {@code app.userImport.maxLines}
+ * lines, further imports are turned away with a 503 like signins when the hashing pool is full.
+ */
+@Service
+@Slf4j
+public class UserImportService {
+
+    private final UserBatchRepository userBatchRepository;
+    private final RoleRegistry roleRegistry;
+    private final PasswordEncoder encoder;
+    private final InvalidationBus invalidationBus;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    // a single signup payload is far below this, a longer line is skipped instead of being held in memory
+    private static final int MAX_LINE_LENGTH = 16 * 1024;
+
+    private final ThreadPoolExecutor executor;
+    private final Semaphore imports;
+    private final int threads;
+    private final int chunkSize;
+    private final long maxLines;
+    private final long retryAfterSeconds;
+    private final Counter importedRows;
+    private final Counter failedRows;
+
+    public UserImportService(
+            UserBatchRepository userBatchRepository,
+            RoleRegistry roleRegistry,
+            PasswordEncoder encoder,
+            InvalidationBus invalidationBus,
+            TransactionTemplate transactionTemplate,
+            ObjectMapper objectMapper,
+            Validator validator,
+            MeterRegistry meterRegistry,
+            @Value("${app.userImport.threads}") int threads,
+            @Value("${app.userImport.chunkSize}") int chunkSize,
+            @Value("${app.userImport.maxConcurrent}") int maxConcurrent,
+            @Value("${app.userImport.maxLines}") long maxLines,
+            @Value("${app.userImport.retryAfterSeconds}") long retryAfterSeconds) {
+        this.userBatchRepository = userBatchRepository;
+        this.roleRegistry = roleRegistry;
+        this.encoder = encoder;
+        this.invalidationBus = invalidationBus;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        // an import only hands over one task per thread and chunk, then waits for them, so the queue never fills up
+        // while the semaphore holds
+        this.executor = new ThreadPoolExecutor(this.threads, this.threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(this.threads * maxConcurrent),
+                new CustomizableThreadFactory("user-import-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.imports = new Semaphore(maxConcurrent);
+        this.chunkSize = chunkSize;
+        this.maxLines = maxLines;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.importedRows = Counter.builder("auth.import.rows").tag("outcome", "imported")
+                .description("Lines of user imports").register(meterRegistry);
+        this.failedRows = Counter.builder("auth.import.rows").tag("outcome", "failed")
+                .description("Lines of user imports").register(meterRegistry);
+    }
+
+    public UserImportResponse importUsers(InputStream ndjson) throws IOException {
+        if (!imports.tryAcquire()) {
+            throw overloaded();
+        }
+        try {
+            return importLines(new LineReader(new BufferedReader(new InputStreamReader(ndjson, StandardCharsets.UTF_8))));
+        } finally {
+            imports.release();
+        }
+    }
+
+    private UserImportResponse importLines(LineReader reader) throws IOException {
+        long start = System.nanoTime();
+        Batch batch = new Batch();
+        List<Line> chunk = new ArrayList<>(chunkSize);
+
+        long number = 0;
+        for (String text = reader.readLine(); text != null; text = reader.readLine()) {
+            number++;
+            if (text.isBlank()) {
+                continue;
+            }
+            if (number > maxLines) {
+                batch.errors.add(new UserImportError(number, null,
+                        "Error: An import reads at most " + maxLines + " lines, this one and the rest were not read."));
+                break;
+            }
+            if (reader.tooLong()) {
+                batch.errors.add(new UserImportError(number, null, "Error: Line is longer than " + MAX_LINE_LENGTH + " characters."));
+                continue;
+            }
+            Line line = parse(number, text, batch);
+            if (line != null) {
+                chunk.add(line);
+            }
+            if (chunk.size() == chunkSize) {
+                importChunk(chunk, batch);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            importChunk(chunk, batch);
+        }
+
+        batch.errors.sort(Comparator.comparingLong(UserImportError::getLine));
+        importedRows.increment(batch.imported);
+        failedRows.increment(batch.errors.size());
+        log.info("Imported {} users, {} lines failed, in {} ms", batch.imported, batch.errors.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return new UserImportResponse(batch.imported, batch.errors.size(), batch.errors);
+    }
+
+    /**
+     * The same checks as a signup request, plus duplicates of earlier lines. Null when the line is rejected.
+     */
+    private Line parse(long number, String text, Batch batch) {
+        SignupRequest request;
+        try {
+            request = objectMapper.readValue(text, SignupRequest.class);
+        } catch (JsonProcessingException e) {
+            batch.errors.add(new UserImportError(number, null, "Error: Line is not a valid signup request."));
+            return null;
+        }
+
+        Set<ConstraintViolation<SignupRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            List<String> fieldErrors = violations.stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .sorted()
+                    .toList();
+            batch.errors.add(new UserImportError(number, request.getUsername(), "Bad request: " + fieldErrors));
+            return null;
+        }
+
+        Set<Integer> roleIds = new HashSet<>();
+        try {
+            if (request.getRoles() == null) {
+                roleIds.add(roleRegistry.get(ERole.ROLE_USER).getId());
+            } else {
+                request.getRoles().forEach(role -> roleIds.add(roleRegistry.get(ERole.fromString(role)).getId()));
+            }
+        } catch (ApiException | IllegalArgumentException e) {
+            batch.errors.add(new UserImportError(number, request.getUsername(), e.getMessage()));
+            return null;
+        }
+
+        String username = lowerCase(request.getUsername());
+        String email = lowerCase(request.getEmail());
+        if (batch.usernames.contains(username)) {
+            batch.errors.add(new UserImportError(number, request.getUsername(), "Error: Username is already taken!"));
+            return null;
+        }
+        if (batch.emails.contains(email)) {
+            batch.errors.add(new UserImportError(number, request.getUsername(), "Error: Email is already in use!"));
+            return null;
+        }
+        batch.usernames.add(username);
+        batch.emails.add(email);
+
+        return new Line(number, request, roleIds);
+    }
+
+    private void importChunk(List<Line> chunk, Batch batch) {
+        // one query for the whole chunk instead of two per user
+        Set<String> takenUsernames = new HashSet<>();
+        Set<String> takenEmails = new HashSet<>();
+        for (ExistingUser existing : userBatchRepository.findByUsernameInOrEmailIn(
+                chunk.stream().map(line -> line.request().getUsername()).toList(),
+                chunk.stream().map(line -> line.request().getEmail()).toList())) {
+            takenUsernames.add(lowerCase(existing.username()));
+            takenEmails.add(lowerCase(existing.email()));
+        }
+
+        List<Line> available = new ArrayList<>(chunk.size());
+        for (Line line : chunk) {
+            if (takenUsernames.contains(lowerCase(line.request().getUsername()))) {
+                batch.errors.add(new UserImportError(line.number(), line.request().getUsername(), "Error: Username is already taken!"));
+            } else if (takenEmails.contains(lowerCase(line.request().getEmail()))) {
+                batch.errors.add(new UserImportError(line.number(), line.request().getUsername(), "Error: Email is already in use!"));
+            } else {
+                available.add(line);
+            }
+        }
+        if (available.isEmpty()) {
+            return;
+        }
+
+        String[] passwords = hash(available);
+        List<NewUser> users = new ArrayList<>(available.size());
+        for (int i = 0; i < available.size(); i++) {
+            SignupRequest request = available.get(i).request();
+            users.add(new NewUser(request.getUsername(), request.getEmail(), passwords[i], available.get(i).roleIds()));
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> userBatchRepository.insertAll(users));
+            batch.imported += users.size();
+        } catch (DataIntegrityViolationException e) {
+            // a concurrent signup took a username or an email after the check, insert one by one to find which
+            for (int i = 0; i < users.size(); i++) {
+                NewUser user = users.get(i);
+                try {
+                    transactionTemplate.executeWithoutResult(status -> userBatchRepository.insertAll(List.of(user)));
+                    batch.imported++;
+                } catch (DataIntegrityViolationException duplicate) {
+                    batch.errors.add(new UserImportError(available.get(i).number(), user.username(),
+                            "Error: Username or email is already in use!"));
+                }
+            }
+        }
+        // a username cached as unknown before the import may exist now
+        invalidationBus.publish(InvalidationEvent.usersImported());
+    }
+
+    /**
+     * Hashes the passwords of a chunk, split into one part per thread of the import pool.
+     */
+    private String[] hash(List<Line> lines) {
+        String[] passwords = new String[lines.size()];
+        int parts = Math.min(threads, lines.size());
+        int partSize = (lines.size() + parts - 1) / parts;
+        CompletableFuture<?>[] hashed = new CompletableFuture<?>[parts];
+        for (int part = 0; part < parts; part++) {
+            int from = part * partSize;
+            int to = Math.min(lines.size(), from + partSize);
+            try {
+                hashed[part] = CompletableFuture.runAsync(() -> {
+                    for (int i = from; i < to; i++) {
+                        passwords[i] = encoder.encode(lines.get(i).request().getPassword());
+                    }
+                }, executor);
+            } catch (RejectedExecutionException e) {
+                throw overloaded();
+            }
+        }
+        CompletableFuture.allOf(hashed).join();
+
+        return passwords;
+    }
+
+    // MySQL compares usernames and emails case-insensitively
+    private static String lowerCase(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    private ServiceOverloadedException overloaded() {
+        return new ServiceOverloadedException("Error: Too many user imports running, please retry later.", retryAfterSeconds);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private record Line(long number, SignupRequest request, Set<Integer> roleIds) {
+    }
+
+    /**
+     * Reads lines of at most {@link #MAX_LINE_LENGTH} characters, the rest of a longer line is skipped.
+     */
+    private static class LineReader {
+        private final Reader reader;
+        private final StringBuilder line = new StringBuilder();
+        private boolean tooLong;
+
+        LineReader(Reader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * @return the next line, cut at the limit when {@link #tooLong()}, or null at the end of the stream
+         */
+        String readLine() throws IOException {
+            line.setLength(0);
+            tooLong = false;
+            int c = reader.read();
+            if (c == -1) {
+                return null;
+            }
+            for (; c != -1 && c != '\n'; c = reader.read()) {
+                if (line.length() < MAX_LINE_LENGTH) {
+                    line.append((char) c);
+                } else {
+                    tooLong = true;
+                }
+            }
+            int length = line.length();
+            if (length > 0 && line.charAt(length - 1) == '\r') {
+                line.setLength(length - 1);
+            }
+            return line.toString();
+        }
+
+        boolean tooLong() {
+            return tooLong;
+        }
+    }
+
+    /**
+     * State of one import: counts, errors and the lines seen so far, to catch duplicates within the file.
+     */
+    private static class Batch {
+        private final List<UserImportError> errors = new ArrayList<>();
+        private final Set<String> usernames = new HashSet<>();
+        private final Set<String> emails = new HashSet<>();
+        private int imported;
+    }
+}
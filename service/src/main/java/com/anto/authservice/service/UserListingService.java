@@ -0,0 +1,133 @@
+package com.anto.authservice.service;
+
+import com.anto.authservice.exception.ApiException;
+import com.anto.authservice.model.UserWithRole;
+import com.anto.authservice.model.payload.response.UserPageResponse;
+import com.anto.authservice.model.payload.response.UserSummary;
+import com.anto.authservice.repository.UserExportRepository;
+import com.anto.authservice.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Lists users for admins, a page at a time or as a full export, with the roles of many users read at once instead of
+ * one query per user.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UserListingService {
+
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    private final UserRepository userRepository;
+    private final UserExportRepository userExportRepository;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Keyset pagination on the user id: a page starts after the last id of the previous one, so a deep page costs the
+     * same as the first and users created in between are neither skipped nor repeated.
+     *
+     * @param usernamePrefix only users whose username starts with it, all when null
+     */
+    public UserPageResponse page(long after, int limit, String usernamePrefix) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ApiException("Error: limit must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+
+        List<Long> ids = userRepository.findIdsAfter(after, likePattern(usernamePrefix), Pageable.ofSize(limit));
+        List<UserSummary> users = new ArrayList<>(ids.size());
+        if (!ids.isEmpty()) {
+            UserFolder folder = new UserFolder(users::add);
+            userRepository.findWithRolesByIdIn(ids).forEach(folder);
+            folder.finish();
+        }
+
+        return new UserPageResponse(users, ids.size() == limit ? ids.get(ids.size() - 1) : null);
+    }
+
+    /**
+     * Writes every user as one JSON line, while the rows are read, so memory use does not grow with the user count.
+     *
+     * @return the number of users written
+     */
+    public long export(OutputStream out) throws IOException {
+        long start = System.nanoTime();
+        long[] written = new long[1];
+        UserFolder folder = new UserFolder(user -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(user));
+                out.write('\n');
+                written[0]++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        try {
+            userExportRepository.forEachUserWithRole(folder);
+            folder.finish();
+        } catch (UncheckedIOException e) {
+            // the client went away, there is nobody left to answer
+            throw e.getCause();
+        }
+        out.flush();
+
+        log.info("Exported {} users in {} ms", written[0], TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return written[0];
+    }
+
+    private static String likePattern(String prefix) {
+        if (prefix == null) {
+            return "%";
+        }
+        return prefix.replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%";
+    }
+
+    /**
+     * Folds rows ordered by user id, one per role, into one summary per user.
+     */
+    private static class UserFolder implements Consumer<UserWithRole> {
+
+        private final Consumer<UserSummary> users;
+        private UserWithRole current;
+        private List<String> roles = new ArrayList<>();
+
+        UserFolder(Consumer<UserSummary> users) {
+            this.users = users;
+        }
+
+        @Override
+        public void accept(UserWithRole row) {
+            if (current != null && !current.id().equals(row.id())) {
+                finish();
+            }
+            if (current == null) {
+                current = row;
+            }
+            if (row.role() != null) {
+                roles.add(row.role().name());
+            }
+        }
+
+        void finish() {
+            if (current != null) {
+                // sorted here rather than in the query, which would keep MySQL from streaming the export in id order
+                roles.sort(null);
+                users.accept(new UserSummary(current.id(), current.username(), current.email(), roles));
+                current = null;
+                roles = new ArrayList<>();
+            }
+        }
+    }
+}
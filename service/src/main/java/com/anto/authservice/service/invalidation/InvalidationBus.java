@@ -0,0 +1,13 @@
+package com.anto.authservice.service.invalidation;
+
+/**
+ * Spreads {@link InvalidationEvent}s to the {@link InvalidationListener}s of every instance, selected with
+ * {@code app.invalidation.bus}. Events are published after the change they describe is committed.
+ */
+public interface InvalidationBus {
+
+    /**
+     * Applies the event on this instance before returning.
+     */
+    void publish(InvalidationEvent event);
+}
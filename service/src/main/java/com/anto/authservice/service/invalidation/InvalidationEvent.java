@@ -0,0 +1,39 @@
+package com.anto.authservice.service.invalidation;
+
+import java.time.Instant;
+
+/**
+ * A change that every instance has to apply to its in-process state.
+ *
+ * @param key        the username for {@link Type#USER}, the jti for {@link Type#ACCESS_TOKEN}, unused otherwise
+ * @param expiryDate when a revoked access token expires, null otherwise
+ */
+public record InvalidationEvent(Type type, String key, Instant expiryDate) {
+
+    public enum Type {
+        // the user or its roles changed, cached user details are stale
+        USER,
+        // an access token was revoked
+        ACCESS_TOKEN,
+        // an admin asked for the roles table to be read again
+        ROLES,
+        // users were created in bulk, any username cached as unknown may exist now
+        USERS_IMPORTED
+    }
+
+    public static InvalidationEvent user(String username) {
+        return new InvalidationEvent(Type.USER, username, null);
+    }
+
+    public static InvalidationEvent roles() {
+        return new InvalidationEvent(Type.ROLES, "roles", null);
+    }
+
+    public static InvalidationEvent usersImported() {
+        return new InvalidationEvent(Type.USERS_IMPORTED, "users", null);
+    }
+
+    public static InvalidationEvent accessToken(String jti, Instant expiryDate) {
+        return new InvalidationEvent(Type.ACCESS_TOKEN, jti, expiryDate);
+    }
+}
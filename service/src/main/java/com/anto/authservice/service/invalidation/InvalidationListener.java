@@ -0,0 +1,11 @@
+package com.anto.authservice.service.invalidation;
+
+/**
+ * Implemented by beans holding in-process state derived from the database. Called on the instance that published
+ * the event and, depending on the {@link InvalidationBus}, on every other one. Must be idempotent, an event can be
+ * delivered more than once.
+ */
+public interface InvalidationListener {
+
+    void onInvalidation(InvalidationEvent event);
+}
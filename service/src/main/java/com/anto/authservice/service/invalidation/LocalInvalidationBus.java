@@ -0,0 +1,23 @@
+package com.anto.authservice.service.invalidation;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Delivers events to the listeners of this instance only, for a single node.
+ */
+@Component
+@ConditionalOnProperty(name = "app.invalidation.bus", havingValue = "local", matchIfMissing = true)
+@RequiredArgsConstructor
+public class LocalInvalidationBus implements InvalidationBus {
+
+    private final List<InvalidationListener> listeners;
+
+    @Override
+    public void publish(InvalidationEvent event) {
+        listeners.forEach(listener -> listener.onInvalidation(event));
+    }
+}
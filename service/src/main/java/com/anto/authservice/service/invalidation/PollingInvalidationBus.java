@@ -0,0 +1,102 @@
+package com.anto.authservice.service.invalidation;
+
+import com.anto.authservice.model.InvalidationEventRecord;
+import com.anto.authservice.repository.InvalidationEventRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Writes events to the invalidationevent table, which every instance polls every {@code app.invalidation.pollIntervalMs}.
+ * An event reaches the other instances within about one poll interval, requests never wait on another node.
+ * <p>
+ * Ids are handed out before the insert commits, so a higher id can become visible before a lower one. A missing id is
+ * waited for up to {@code app.invalidation.gapTimeoutMs} (measured from the event after it) and then taken as a
+ * rolled back insert, which bounds the lag of the events behind it.
+ * <p>
+ * On startup the events since this JVM started are replayed, so nothing published while the listeners were loading
+ * their state from the database is missed. Events are purged after {@code app.invalidation.retentionMs}.
+ */
+@Component
+@ConditionalOnProperty(name = "app.invalidation.bus", havingValue = "jdbc")
+@Slf4j
+public class PollingInvalidationBus implements InvalidationBus {
+
+    private static final Pageable BATCH = PageRequest.ofSize(500);
+
+    private final InvalidationEventRepository invalidationEventRepository;
+    private final List<InvalidationListener> listeners;
+    private final long gapTimeoutMs;
+    private final long retentionMs;
+    private final String origin = UUID.randomUUID().toString();
+
+    // every event up to this id has been applied, only touched by the poller
+    private long lastId;
+
+    public PollingInvalidationBus(
+            InvalidationEventRepository invalidationEventRepository,
+            List<InvalidationListener> listeners,
+            @Value("${app.invalidation.gapTimeoutMs}") long gapTimeoutMs,
+            @Value("${app.invalidation.retentionMs}") long retentionMs) {
+        this.invalidationEventRepository = invalidationEventRepository;
+        this.listeners = listeners;
+        this.gapTimeoutMs = gapTimeoutMs;
+        this.retentionMs = retentionMs;
+
+        Instant jvmStart = Instant.ofEpochMilli(ManagementFactory.getRuntimeMXBean().getStartTime());
+        Long replayFrom = invalidationEventRepository.findMaxIdCreatedBefore(jvmStart.minusMillis(gapTimeoutMs));
+        this.lastId = replayFrom != null ? replayFrom : 0;
+    }
+
+    @Override
+    public void publish(InvalidationEvent event) {
+        invalidationEventRepository.save(new InvalidationEventRecord(event, origin, Instant.now()));
+        dispatch(event);
+    }
+
+    @Scheduled(fixedDelayString = "${app.invalidation.pollIntervalMs}")
+    public void poll() {
+        List<InvalidationEventRecord> events;
+        do {
+            events = invalidationEventRepository.findAfter(lastId, BATCH);
+            Instant gapDeadline = Instant.now().minusMillis(gapTimeoutMs);
+            for (InvalidationEventRecord record : events) {
+                if (record.getId() != lastId + 1 && record.getCreatedAt().isAfter(gapDeadline)) {
+                    // an event before this one may still be committing
+                    return;
+                }
+                if (!origin.equals(record.getOrigin())) {
+                    dispatch(record.toEvent());
+                }
+                lastId = record.getId();
+            }
+        } while (events.size() == BATCH.getPageSize());
+    }
+
+    @Scheduled(initialDelayString = "${app.invalidation.retentionMs}", fixedDelayString = "${app.invalidation.retentionMs}")
+    public void purgeExpired() {
+        int purged = invalidationEventRepository.deleteCreatedBefore(Instant.now().minusMillis(retentionMs));
+        if (purged > 0) {
+            log.info("Purged {} invalidation events", purged);
+        }
+    }
+
+    private void dispatch(InvalidationEvent event) {
+        for (InvalidationListener listener : listeners) {
+            try {
+                listener.onInvalidation(event);
+            } catch (RuntimeException e) {
+                log.error("Cannot apply invalidation event {}: {}", event, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.anto.authservice.service.token;
+
+import com.anto.authservice.service.UserDetailsImpl;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps refresh token sessions in memory, striped over {@code app.refreshToken.memory.shards} maps keyed by token
+ * hash, so a refresh is a hash lookup plus the cached user details instead of a database round trip. Sessions are
+ * only known to this instance, which makes it suitable for a single node (or sticky sessions).
+ * <p>
+ * Changes are written behind to the journal at {@code app.refreshToken.memory.journalLocation} every
+ * {@code app.refreshToken.memory.flushIntervalMs} and replayed on startup. A crash loses at most the changes made
+ * within the last flush interval: sessions started or rotated in that window have to sign in again.
+ * Without a journal location nothing survives a restart.
+ * <p>
+ * Lookups are lock-free. A session is only changed inside a compute on its family id, which orders its changes and
+ * their journal records without a lock across sessions.
+ */
+@Component
+@ConditionalOnProperty(name = "app.refreshToken.store", havingValue = "memory")
+@Slf4j
+public class InMemoryRefreshTokenStore implements RefreshTokenStore {
+
+    private final UserDetailsService userDetailsService;
+    private final ConcurrentHashMap<ByteBuffer, RefreshTokenEntry>[] shards;
+    // family id -> hash of its current token
+    private final ConcurrentHashMap<ByteBuffer, ByteBuffer> families = new ConcurrentHashMap<>();
+    private final RefreshTokenJournal journal;
+
+    @SuppressWarnings("unchecked")
+    public InMemoryRefreshTokenStore(
+            UserDetailsService userDetailsService,
+            @Value("${app.refreshToken.memory.shards}") int shards,
+            @Value("${app.refreshToken.memory.journalLocation}") String journalLocation) throws IOException {
+        this.userDetailsService = userDetailsService;
+        // a power of two, so the shard is picked with a mask
+        this.shards = new ConcurrentHashMap[shards <= 1 ? 1 : Integer.highestOneBit(shards - 1) << 1];
+        for (int i = 0; i < this.shards.length; i++) {
+            this.shards[i] = new ConcurrentHashMap<>();
+        }
+
+        if (!StringUtils.hasText(journalLocation)) {
+            log.warn("No app.refreshToken.memory.journalLocation configured, refresh tokens will not survive a restart");
+            this.journal = null;
+            return;
+        }
+
+        Path journalFile = Path.of(journalLocation).toAbsolutePath();
+        Files.createDirectories(journalFile.getParent());
+        this.journal = new RefreshTokenJournal(journalFile);
+        journal.recover(Instant.now()).forEach(this::index);
+        log.info("Recovered {} refresh token sessions from {}", size(), journalFile);
+    }
+
+    @Override
+    public void create(RefreshTokenEntry entry) {
+        ByteBuffer key = key(entry.tokenHash());
+        ByteBuffer family = key(entry.familyId());
+        families.compute(family, (familyId, current) -> {
+            shard(key).put(key, entry);
+            journalPut(entry);
+            return key;
+        });
+    }
+
+    @Override
+    public Optional<RefreshTokenOwner> findOwner(byte[] tokenHash) {
+        RefreshTokenEntry entry = get(key(tokenHash));
+        if (entry == null) {
+            return Optional.empty();
+        }
+
+        try {
+            UserDetailsImpl user = (UserDetailsImpl) userDetailsService.loadUserByUsername(entry.username());
+            return Optional.of(new RefreshTokenOwner(user, entry.familyId(), entry.generation(), false, entry.expiryDate()));
+        } catch (UsernameNotFoundException e) {
+            delete(tokenHash);
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public boolean rotate(byte[] tokenHash, byte[] nextTokenHash) {
+        ByteBuffer key = key(tokenHash);
+        RefreshTokenEntry entry = get(key);
+        if (entry == null) {
+            return false;
+        }
+
+        AtomicBoolean rotated = new AtomicBoolean();
+        families.computeIfPresent(key(entry.familyId()), (familyId, currentKey) -> {
+            if (!currentKey.equals(key)) {
+                return currentKey;
+            }
+            RefreshTokenEntry next = entry.next(nextTokenHash);
+            ByteBuffer nextKey = key(nextTokenHash);
+            shard(nextKey).put(nextKey, next);
+            shard(key).remove(key);
+            journalPut(next);
+            journalDelete(tokenHash);
+            rotated.set(true);
+            return nextKey;
+        });
+
+        return rotated.get();
+    }
+
+    /**
+     * A revoked session is simply removed, its tokens are then unknown.
+     */
+    @Override
+    public boolean revokeFamily(byte[] familyId, int generation) {
+        AtomicBoolean revoked = new AtomicBoolean();
+        families.computeIfPresent(key(familyId), (family, currentKey) -> {
+            RefreshTokenEntry current = get(currentKey);
+            if (current.generation() <= generation) {
+                return currentKey;
+            }
+            removeCurrent(currentKey, current);
+            revoked.set(true);
+            return null;
+        });
+
+        return revoked.get();
+    }
+
+    @Override
+    public void delete(byte[] tokenHash) {
+        ByteBuffer key = key(tokenHash);
+        RefreshTokenEntry entry = get(key);
+        if (entry == null) {
+            return;
+        }
+
+        families.computeIfPresent(key(entry.familyId()), (familyId, currentKey) -> {
+            if (!currentKey.equals(key)) {
+                return currentKey;
+            }
+            removeCurrent(key, entry);
+            return null;
+        });
+    }
+
+    /**
+     * Expired sessions are not journaled as deleted, recovery and compaction drop them anyway.
+     */
+    @Override
+    public int purgeExpired(Instant now) {
+        int purged = 0;
+        for (ConcurrentHashMap<ByteBuffer, RefreshTokenEntry> shard : shards) {
+            for (Map.Entry<ByteBuffer, RefreshTokenEntry> entry : shard.entrySet()) {
+                RefreshTokenEntry expired = entry.getValue();
+                if (expired.isExpired(now) && families.remove(key(expired.familyId()), entry.getKey())) {
+                    shard.remove(entry.getKey());
+                    purged++;
+                }
+            }
+        }
+
+        return purged;
+    }
+
+    @Scheduled(fixedDelayString = "${app.refreshToken.memory.flushIntervalMs}")
+    public void flushJournal() {
+        if (journal == null) {
+            return;
+        }
+
+        try {
+            journal.flush();
+            if (journal.needsCompaction(size())) {
+                journal.compact(Instant.now());
+            }
+        } catch (IOException e) {
+            log.error("Cannot write the refresh token journal: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (journal == null) {
+            return;
+        }
+
+        try {
+            journal.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    int size() {
+        return families.size();
+    }
+
+    /**
+     * Only used on recovery. Should a session end up with two tokens, its rotation cut short by a crash,
+     * the newer generation is kept.
+     */
+    private void index(RefreshTokenEntry entry) {
+        ByteBuffer family = key(entry.familyId());
+        ByteBuffer current = families.get(family);
+        if (current != null) {
+            if (get(current).generation() > entry.generation()) {
+                return;
+            }
+            shard(current).remove(current);
+        }
+
+        ByteBuffer key = key(entry.tokenHash());
+        shard(key).put(key, entry);
+        families.put(family, key);
+    }
+
+    // only called inside a compute on the family of the entry
+    private void removeCurrent(ByteBuffer key, RefreshTokenEntry entry) {
+        shard(key).remove(key);
+        journalDelete(entry.tokenHash());
+    }
+
+    private void journalPut(RefreshTokenEntry entry) {
+        if (journal != null) {
+            journal.appendPut(entry);
+        }
+    }
+
+    private void journalDelete(byte[] tokenHash) {
+        if (journal != null) {
+            journal.appendDelete(tokenHash);
+        }
+    }
+
+    private RefreshTokenEntry get(ByteBuffer key) {
+        return shard(key).get(key);
+    }
+
+    /**
+     * The hash is already uniformly distributed, its first bytes pick the shard.
+     */
+    private ConcurrentHashMap<ByteBuffer, RefreshTokenEntry> shard(ByteBuffer key) {
+        return shards[key.getInt(0) & (shards.length - 1)];
+    }
+
+    // ByteBuffer compares by content, the wrapped arrays are never modified
+    private static ByteBuffer key(byte[] bytes) {
+        return ByteBuffer.wrap(bytes);
+    }
+}
@@ -0,0 +1,106 @@
+package com.anto.authservice.service.token;
+
+import com.anto.authservice.model.ERole;
+import com.anto.authservice.model.RefreshToken;
+import com.anto.authservice.model.RefreshTokenUser;
+import com.anto.authservice.repository.RefreshTokenRepository;
+import com.anto.authservice.repository.UserRepository;
+import com.anto.authservice.service.UserDetailsImpl;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Pageable;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+@Component
+@ConditionalOnProperty(name = "app.refreshToken.store", havingValue = "jpa", matchIfMissing = true)
+public class JpaRefreshTokenStore implements RefreshTokenStore {
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final UserRepository userRepository;
+    private final int purgeBatchSize;
+
+    public JpaRefreshTokenStore(
+            RefreshTokenRepository refreshTokenRepository,
+            UserRepository userRepository,
+            @Value("${app.refreshToken.purgeBatchSize}") int purgeBatchSize) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.userRepository = userRepository;
+        this.purgeBatchSize = purgeBatchSize;
+    }
+
+    /**
+     * A single insert, the user is only referenced.
+     */
+    @Override
+    public void create(RefreshTokenEntry entry) {
+        RefreshToken refreshToken = new RefreshToken();
+        refreshToken.setUser(userRepository.getReferenceById(entry.userId()));
+        refreshToken.setFamilyId(entry.familyId());
+        refreshToken.setGeneration(entry.generation());
+        refreshToken.setTokenHash(entry.tokenHash());
+        refreshToken.setExpiryDate(entry.expiryDate());
+        refreshTokenRepository.save(refreshToken);
+    }
+
+    /**
+     * A single query returning the session with its user and roles.
+     */
+    @Override
+    public Optional<RefreshTokenOwner> findOwner(byte[] tokenHash) {
+        List<RefreshTokenUser> rows = refreshTokenRepository.findUserByTokenHash(tokenHash);
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+
+        RefreshTokenUser owner = rows.get(0);
+        List<GrantedAuthority> authorities = rows.stream()
+                .map(RefreshTokenUser::role)
+                .filter(Objects::nonNull)
+                .map(ERole::getAuthority)
+                .toList();
+
+        return Optional.of(new RefreshTokenOwner(
+                new UserDetailsImpl(owner.userId(), owner.username(), owner.email(), null, authorities),
+                owner.familyId(), owner.generation(), owner.revoked(), owner.expiryDate()));
+    }
+
+    @Override
+    public boolean rotate(byte[] tokenHash, byte[] nextTokenHash) {
+        return refreshTokenRepository.rotate(tokenHash, nextTokenHash) == 1;
+    }
+
+    @Override
+    public boolean revokeFamily(byte[] familyId, int generation) {
+        return refreshTokenRepository.revokeFamily(familyId, generation) > 0;
+    }
+
+    @Override
+    public void delete(byte[] tokenHash) {
+        refreshTokenRepository.deleteByTokenHash(tokenHash);
+    }
+
+    /**
+     * Each batch selects at most purgeBatchSize ids through the expiryDate index and deletes them by primary key
+     * in its own transaction, keeping row locks short.
+     */
+    @Override
+    public int purgeExpired(Instant now) {
+        int purged = 0;
+        List<Long> ids;
+        do {
+            ids = refreshTokenRepository.findExpiredIds(now, Pageable.ofSize(purgeBatchSize));
+            if (!ids.isEmpty()) {
+                refreshTokenRepository.deleteAllByIdInBatch(ids);
+                purged += ids.size();
+            }
+        } while (ids.size() == purgeBatchSize);
+
+        return purged;
+    }
+}
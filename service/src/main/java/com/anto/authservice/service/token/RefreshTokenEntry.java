@@ -0,0 +1,18 @@
+package com.anto.authservice.service.token;
+
+import java.time.Instant;
+
+/**
+ * The current token of a session (token family). Each refresh moves the family to its next generation
+ * with a new token, the expiry of the family stays the one set at signin.
+ */
+public record RefreshTokenEntry(byte[] tokenHash, byte[] familyId, int generation, Long userId, String username, Instant expiryDate) {
+
+    public boolean isExpired(Instant now) {
+        return expiryDate.compareTo(now) < 0;
+    }
+
+    public RefreshTokenEntry next(byte[] nextTokenHash) {
+        return new RefreshTokenEntry(nextTokenHash, familyId, generation + 1, userId, username, expiryDate);
+    }
+}
@@ -0,0 +1,251 @@
+package com.anto.authservice.service.token;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only file recording every stored and deleted refresh token of {@link InMemoryRefreshTokenStore}.
+ * <p>
+ * Writers only enqueue records, {@link #flush()} writes whatever is queued in one batch and forces it to disk.
+ * Each record is framed as {@code [length][crc32][payload]}, so a record torn by a crash is detected on recovery
+ * and dropped together with anything after it. Records written since the last flush are lost on a crash.
+ * <p>
+ * Replay applies the records in order, so the records of a token must be queued in the order of its changes.
+ * Compaction rewrites the file from its own records, never from the live map, so it cannot miss a change whose
+ * record is still queued.
+ */
+@Slf4j
+class RefreshTokenJournal implements Closeable {
+
+    private static final byte PUT = 'f';
+    private static final byte DELETE = 'd';
+    // records written before token families, put records without family are given a new one on replay
+    private static final byte UNVERSIONED_PUT = 'p';
+    // records written before tokens were hashed carry the token itself, they are hashed on replay
+    private static final byte LEGACY_PUT = 'P';
+    private static final byte LEGACY_DELETE = 'D';
+    private static final int MAX_RECORD_LENGTH = 64 * 1024;
+    private static final int MIN_COMPACTION_RECORDS = 10_000;
+
+    private final Path file;
+    private final Queue<byte[]> pending = new ConcurrentLinkedQueue<>();
+
+    // only touched under the journal lock
+    private FileChannel channel;
+    private long recordsSinceCompaction;
+
+    RefreshTokenJournal(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Replays the journal, dropping a torn tail, and rewrites it with only the live entries.
+     *
+     * @return the tokens that were stored and not deleted or expired
+     */
+    synchronized Collection<RefreshTokenEntry> recover(Instant now) throws IOException {
+        return compact(now);
+    }
+
+    void appendPut(RefreshTokenEntry entry) {
+        pending.add(encodePut(entry));
+    }
+
+    void appendDelete(byte[] tokenHash) {
+        pending.add(frame(payload -> {
+            payload.writeByte(DELETE);
+            payload.write(tokenHash);
+        }));
+    }
+
+    /**
+     * Writes the queued records in one batch and forces them to disk.
+     */
+    synchronized void flush() throws IOException {
+        if (channel == null || pending.isEmpty()) {
+            return;
+        }
+
+        ByteArrayOutputStream batch = new ByteArrayOutputStream();
+        byte[] record;
+        while ((record = pending.poll()) != null) {
+            batch.write(record);
+            recordsSinceCompaction++;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(batch.toByteArray());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+    }
+
+    boolean needsCompaction(int liveEntries) {
+        return recordsSinceCompaction > Math.max(MIN_COMPACTION_RECORDS, 2L * liveEntries);
+    }
+
+    /**
+     * Replaces the journal by one holding a record per live entry. Records still queued are written by the next flush.
+     *
+     * @return the live entries
+     */
+    synchronized Collection<RefreshTokenEntry> compact(Instant now) throws IOException {
+        Map<ByteBuffer, RefreshTokenEntry> entries = new LinkedHashMap<>();
+        if (Files.exists(file)) {
+            long validLength = replay(entries);
+            long fileLength = Files.size(file);
+            if (validLength < fileLength) {
+                log.warn("Refresh token journal {} has {} trailing bytes of an incomplete or corrupt record, dropping them",
+                        file, fileLength - validLength);
+            }
+        }
+        entries.values().removeIf(entry -> entry.isExpired(now));
+
+        Path compacted = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(compacted))) {
+            for (RefreshTokenEntry entry : entries.values()) {
+                out.write(encodePut(entry));
+            }
+        }
+        try (FileChannel compactedChannel = FileChannel.open(compacted, StandardOpenOption.WRITE)) {
+            compactedChannel.force(true);
+        }
+
+        if (channel != null) {
+            channel.close();
+        }
+        Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        recordsSinceCompaction = 0;
+
+        return entries.values();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            flush();
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * @return the length of the journal up to the end of the last intact record
+     */
+    private long replay(Map<ByteBuffer, RefreshTokenEntry> entries) throws IOException {
+        long validLength = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            while (true) {
+                int length;
+                long checksum;
+                byte[] payload;
+                try {
+                    length = in.readInt();
+                    if (length <= 0 || length > MAX_RECORD_LENGTH) {
+                        break;
+                    }
+                    checksum = in.readInt() & 0xffffffffL;
+                    payload = in.readNBytes(length);
+                } catch (EOFException e) {
+                    break;
+                }
+                if (payload.length < length || checksum(payload) != checksum || !apply(payload, entries)) {
+                    break;
+                }
+                validLength += Integer.BYTES * 2 + length;
+            }
+        }
+
+        return validLength;
+    }
+
+    /**
+     * @return false when the payload cannot be decoded
+     */
+    private static boolean apply(byte[] payload, Map<ByteBuffer, RefreshTokenEntry> entries) {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+            byte operation = in.readByte();
+            switch (operation) {
+                case PUT -> {
+                    byte[] tokenHash = in.readNBytes(RefreshTokens.HASH_LENGTH);
+                    byte[] familyId = in.readNBytes(RefreshTokens.FAMILY_ID_LENGTH);
+                    int generation = in.readInt();
+                    put(entries, new RefreshTokenEntry(tokenHash, familyId, generation, in.readLong(), in.readUTF(),
+                            Instant.ofEpochMilli(in.readLong())));
+                }
+                case UNVERSIONED_PUT -> put(entries, new RefreshTokenEntry(in.readNBytes(RefreshTokens.HASH_LENGTH),
+                        RefreshTokens.newFamilyId(), 0, in.readLong(), in.readUTF(), Instant.ofEpochMilli(in.readLong())));
+                case LEGACY_PUT -> put(entries, new RefreshTokenEntry(RefreshTokens.hash(in.readUTF()),
+                        RefreshTokens.newFamilyId(), 0, in.readLong(), in.readUTF(), Instant.ofEpochMilli(in.readLong())));
+                case DELETE -> entries.remove(ByteBuffer.wrap(in.readNBytes(RefreshTokens.HASH_LENGTH)));
+                case LEGACY_DELETE -> entries.remove(ByteBuffer.wrap(RefreshTokens.hash(in.readUTF())));
+                default -> {
+                    return false;
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void put(Map<ByteBuffer, RefreshTokenEntry> entries, RefreshTokenEntry entry) {
+        entries.put(ByteBuffer.wrap(entry.tokenHash()), entry);
+    }
+
+    private static byte[] encodePut(RefreshTokenEntry entry) {
+        return frame(payload -> {
+            payload.writeByte(PUT);
+            payload.write(entry.tokenHash());
+            payload.write(entry.familyId());
+            payload.writeInt(entry.generation());
+            payload.writeLong(entry.userId());
+            payload.writeUTF(entry.username());
+            payload.writeLong(entry.expiryDate().toEpochMilli());
+        });
+    }
+
+    private static byte[] frame(PayloadWriter writer) {
+        try {
+            ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream();
+            writer.write(new DataOutputStream(payloadBytes));
+            byte[] bytes = payloadBytes.toByteArray();
+
+            ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(bytes.length + Integer.BYTES * 2);
+            DataOutputStream record = new DataOutputStream(recordBytes);
+            record.writeInt(bytes.length);
+            record.writeInt((int) checksum(bytes));
+            record.write(bytes);
+            return recordBytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return crc.getValue();
+    }
+
+    @FunctionalInterface
+    private interface PayloadWriter {
+        void write(DataOutputStream payload) throws IOException;
+    }
+}
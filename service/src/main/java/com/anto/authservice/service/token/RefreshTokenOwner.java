@@ -0,0 +1,8 @@
+package com.anto.authservice.service.token;
+
+import com.anto.authservice.service.UserDetailsImpl;
+
+import java.time.Instant;
+
+public record RefreshTokenOwner(UserDetailsImpl user, byte[] familyId, int generation, boolean revoked, Instant expiryDate) {
+}
@@ -0,0 +1,43 @@
+package com.anto.authservice.service.token;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Storage of refresh token sessions (token families), each identified by the SHA-256 of its current token only.
+ * Selected with {@code app.refreshToken.store}: {@code jpa} (default) keeps them in the database,
+ * {@code memory} in a local map with a journal file.
+ */
+public interface RefreshTokenStore {
+
+    /**
+     * Stores a new session, next to any other session of the same user.
+     */
+    void create(RefreshTokenEntry entry);
+
+    /**
+     * @return the session whose current token has this hash, also when it is expired or revoked
+     */
+    Optional<RefreshTokenOwner> findOwner(byte[] tokenHash);
+
+    /**
+     * Replaces the current token of a session by the next one.
+     *
+     * @return false when the token is no longer current, because it was rotated or revoked concurrently
+     */
+    boolean rotate(byte[] tokenHash, byte[] nextTokenHash);
+
+    /**
+     * Revokes a session, if it has moved past the given generation.
+     *
+     * @return true when a session was revoked
+     */
+    boolean revokeFamily(byte[] familyId, int generation);
+
+    void delete(byte[] tokenHash);
+
+    /**
+     * @return the number of expired sessions removed
+     */
+    int purgeExpired(Instant now);
+}
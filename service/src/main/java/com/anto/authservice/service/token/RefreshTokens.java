@@ -0,0 +1,98 @@
+package com.anto.authservice.service.token;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Opaque refresh tokens, of which only the SHA-256 digest is stored. A token is the base64url encoding of
+ * {@code [family id: 16 bytes][generation: 4 bytes][256 random bits]}, the family id and generation let a
+ * token that is no longer current be traced back to its session. Tokens issued before families (UUID strings and
+ * bare random tokens) do not decode, they are looked up by their hash only.
+ */
+public final class RefreshTokens {
+
+    public static final int HASH_LENGTH = 32;
+    public static final int FAMILY_ID_LENGTH = 16;
+    private static final int SECRET_LENGTH = 32;
+    private static final int TOKEN_LENGTH = FAMILY_ID_LENGTH + Integer.BYTES + SECRET_LENGTH;
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    // DRBG instances lock only themselves (unlike the default NativePRNG with its global lock), so concurrent
+    // signins spread over a pool of them instead of contending on a single generator
+    private static final SecureRandom[] RANDOMS = createRandoms();
+
+    private RefreshTokens() {
+    }
+
+    public static byte[] newFamilyId() {
+        return randomBytes(FAMILY_ID_LENGTH);
+    }
+
+    public static String generate(byte[] familyId, int generation) {
+        ByteBuffer token = ByteBuffer.allocate(TOKEN_LENGTH)
+                .put(familyId)
+                .putInt(generation)
+                .put(randomBytes(SECRET_LENGTH));
+
+        return ENCODER.encodeToString(token.array());
+    }
+
+    /**
+     * @return the family and generation a token claims, without any check that it was actually issued
+     */
+    public static Optional<Family> decode(String token) {
+        byte[] bytes;
+        try {
+            bytes = DECODER.decode(token);
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+        if (bytes.length != TOKEN_LENGTH) {
+            return Optional.empty();
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        byte[] familyId = new byte[FAMILY_ID_LENGTH];
+        buffer.get(familyId);
+
+        return Optional.of(new Family(familyId, buffer.getInt()));
+    }
+
+    public static byte[] hash(String token) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        RANDOMS[ThreadLocalRandom.current().nextInt(RANDOMS.length)].nextBytes(bytes);
+
+        return bytes;
+    }
+
+    private static SecureRandom[] createRandoms() {
+        SecureRandom[] randoms = new SecureRandom[Runtime.getRuntime().availableProcessors() * 2];
+        try {
+            for (int i = 0; i < randoms.length; i++) {
+                randoms[i] = SecureRandom.getInstance("DRBG");
+            }
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        return randoms;
+    }
+
+    public record Family(byte[] familyId, int generation) {
+    }
+}
@@ -0,0 +1,6 @@
+package com.anto.authservice.service.token;
+
+import com.anto.authservice.service.UserDetailsImpl;
+
+public record RotatedRefreshToken(UserDetailsImpl user, String token) {
+}
@@ -0,0 +1,25 @@
+-- Turns the single refresh token per user into one row per signin session (token family) (MySQL).
+-- Existing tokens become the first generation of their own session and are rotated on their next refresh.
+-- Only needed for schemas that are not recreated by spring.jpa.hibernate.ddl-auto.
+
+-- the foreign key needs an index of its own before the unique one on user_id can go
+CREATE INDEX idx_refreshtoken_user_id ON refreshtoken (user_id);
+
+SET @unique_user_id = (SELECT index_name FROM information_schema.statistics
+                       WHERE table_schema = DATABASE() AND table_name = 'refreshtoken'
+                         AND column_name = 'user_id' AND non_unique = 0 LIMIT 1);
+SET @drop_unique_user_id = IF(@unique_user_id IS NULL, 'DO 0',
+                              CONCAT('ALTER TABLE refreshtoken DROP INDEX ', @unique_user_id));
+PREPARE drop_unique_user_id FROM @drop_unique_user_id;
+EXECUTE drop_unique_user_id;
+DEALLOCATE PREPARE drop_unique_user_id;
+
+ALTER TABLE refreshtoken
+    ADD COLUMN family_id BINARY(16) NULL,
+    ADD COLUMN generation INT NOT NULL DEFAULT 0,
+    ADD COLUMN revoked BIT NOT NULL DEFAULT 0;
+
+UPDATE refreshtoken SET family_id = UNHEX(REPLACE(UUID(), '-', '')) WHERE family_id IS NULL;
+
+ALTER TABLE refreshtoken MODIFY family_id BINARY(16) NOT NULL;
+ALTER TABLE refreshtoken ADD CONSTRAINT uk_refreshtoken_family_id UNIQUE (family_id);
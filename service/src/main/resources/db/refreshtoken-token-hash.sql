@@ -0,0 +1,11 @@
+-- Replaces the plaintext refresh token column with its SHA-256 digest (MySQL).
+-- Existing tokens keep working: clients still send the UUID string, the service hashes it before the lookup.
+-- Only needed for schemas that are not recreated by spring.jpa.hibernate.ddl-auto.
+
+ALTER TABLE refreshtoken ADD COLUMN token_hash BINARY(32) NULL;
+
+UPDATE refreshtoken SET token_hash = UNHEX(SHA2(token, 256)) WHERE token_hash IS NULL;
+
+ALTER TABLE refreshtoken MODIFY token_hash BINARY(32) NOT NULL;
+ALTER TABLE refreshtoken ADD CONSTRAINT uk_refreshtoken_token_hash UNIQUE (token_hash);
+ALTER TABLE refreshtoken DROP COLUMN token;
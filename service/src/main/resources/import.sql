@@ -1,3 +1,4 @@
 INSERT INTO roles(name) VALUES ('ROLE_USER');
 INSERT INTO roles(name) VALUES ('ROLE_MODERATOR');
-INSERT INTO roles(name) VALUES ('ROLE_ADMIN');
\ No newline at end of file
+INSERT INTO roles(name) VALUES ('ROLE_ADMIN');
+INSERT INTO roles(name) VALUES ('ROLE_GATEWAY');
\ No newline at end of file
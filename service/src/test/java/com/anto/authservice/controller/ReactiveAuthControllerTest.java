@@ -0,0 +1,146 @@
+package com.anto.authservice.controller;
+
+import com.anto.authservice.Application;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the service with the reactive profile on H2, over JDBC and R2DBC, and walks the auth API the way a client of
+ * the servlet stack would: same paths, same payloads, same error bodies.
+ */
+class ReactiveAuthControllerTest {
+
+    private static final ParameterizedTypeReference<Map<String, Object>> JSON_OBJECT = new ParameterizedTypeReference<>() {
+    };
+
+    private static ConfigurableApplicationContext context;
+    private static WebTestClient client;
+
+    @BeforeAll
+    static void start() {
+        context = new SpringApplicationBuilder(Application.class).run(
+                "--spring.profiles.active=reactive",
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:reactive;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.show-sql=false",
+                "--spring.r2dbc.url=r2dbc:h2:mem:///reactive;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                "--spring.r2dbc.username=sa",
+                "--spring.r2dbc.password=",
+                "--app.passwordHashing.bcryptStrength=4");
+        client = WebTestClient.bindToServer()
+                .baseUrl("http://localhost:" + context.getEnvironment().getProperty("local.server.port"))
+                .build();
+    }
+
+    @AfterAll
+    static void stop() {
+        context.close();
+    }
+
+    @Test
+    void signinRefreshAndSignout() {
+        signup("dave");
+        Map<String, ?> signin = post("/api/auth/signin", Map.of("username", "dave", "password", "123456"))
+                .expectStatus().isOk()
+                .expectBody(JSON_OBJECT).returnResult().getResponseBody();
+        // the JwtResponse fields, in order
+        assertThat(signin.keySet()).containsExactly("type", "accessToken", "refreshToken", "id", "username", "email", "roles");
+        assertThat(signin.get("roles")).isEqualTo(List.of("ROLE_USER"));
+        String accessToken = (String) signin.get("accessToken");
+        String refreshToken = (String) signin.get("refreshToken");
+
+        client.get().uri("/api/test/user").header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken)
+                .exchange()
+                .expectStatus().isOk();
+        client.get().uri("/api/test/admin").header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken)
+                .exchange()
+                .expectStatus().isForbidden();
+
+        Map<String, ?> refreshed = post("/api/auth/refreshtoken", Map.of("refreshToken", refreshToken))
+                .expectStatus().isOk()
+                .expectBody(JSON_OBJECT).returnResult().getResponseBody();
+        assertThat(refreshed.keySet()).containsExactly("type", "accessToken", "refreshToken");
+        assertThat(refreshed.get("refreshToken")).isNotEqualTo(refreshToken);
+        // replaying the rotated token revokes the whole session
+        post("/api/auth/refreshtoken", Map.of("refreshToken", refreshToken)).expectStatus().isForbidden();
+        post("/api/auth/refreshtoken", Map.of("refreshToken", refreshed.get("refreshToken"))).expectStatus().isForbidden();
+
+        client.post().uri("/api/auth/signout").header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken)
+                .contentType(MediaType.APPLICATION_JSON).bodyValue(Map.of())
+                .exchange()
+                .expectStatus().isOk();
+        client.get().uri("/api/test/user").header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken)
+                .exchange()
+                .expectStatus().isUnauthorized();
+    }
+
+    @Test
+    void errorsKeepTheServletBodies() {
+        signup("erin");
+
+        post("/api/auth/signup", Map.of("username", "erin", "email", "other@test.com", "password", "123456"))
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.message").isEqualTo("Error: Username is already taken!");
+        post("/api/auth/signup", Map.of("username", "other", "email", "erin@test.com", "password", "123456"))
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.message").isEqualTo("Error: Email is already in use!");
+        post("/api/auth/signin", Map.of("username", "erin", "password", "wrong1"))
+                .expectStatus().isUnauthorized()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("Bad credentials")
+                .jsonPath("$.path").isEqualTo("/api/auth/signin");
+        client.get().uri("/api/test/user")
+                .exchange()
+                .expectStatus().isUnauthorized()
+                .expectBody().jsonPath("$.error").isEqualTo("Unauthorized");
+    }
+
+    @Test
+    void prometheusNeedsAnAdmin() {
+        client.get().uri("/actuator/prometheus")
+                .exchange()
+                .expectStatus().isUnauthorized();
+        client.get().uri("/actuator/health")
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    @Test
+    void introspectionNeedsAGateway() {
+        post("/api/auth/introspect/batch", Map.of("tokens", List.of("token")))
+                .expectStatus().isUnauthorized();
+
+        signup("gina");
+        String userToken = (String) post("/api/auth/signin", Map.of("username", "gina", "password", "123456"))
+                .expectStatus().isOk()
+                .expectBody(JSON_OBJECT).returnResult().getResponseBody().get("accessToken");
+        client.post().uri("/api/auth/introspect/batch").header(HttpHeaders.AUTHORIZATION, "Bearer " + userToken)
+                .contentType(MediaType.APPLICATION_JSON).bodyValue(Map.of("tokens", List.of(userToken)))
+                .exchange()
+                .expectStatus().isForbidden();
+    }
+
+    private static void signup(String username) {
+        post("/api/auth/signup", Map.of("username", username, "email", username + "@test.com", "password", "123456"))
+                .expectStatus().isOk();
+    }
+
+    private static WebTestClient.ResponseSpec post(String path, Object body) {
+        return client.post().uri(path).contentType(MediaType.APPLICATION_JSON).bodyValue(body).exchange();
+    }
+}
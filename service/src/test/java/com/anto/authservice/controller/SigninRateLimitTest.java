@@ -0,0 +1,66 @@
+package com.anto.authservice.controller;
+
+import com.anto.authservice.Application;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.Map;
+
+/**
+ * Runs the servlet stack on H2 behind a pretend proxy on the loopback address: the signin limit per address applies to
+ * the client named by X-Forwarded-For, so one client hitting it leaves the others behind the same proxy alone.
+ */
+class SigninRateLimitTest {
+
+    private static ConfigurableApplicationContext context;
+    private static WebTestClient client;
+
+    @BeforeAll
+    static void start() {
+        context = new SpringApplicationBuilder(Application.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:ratelimit;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.show-sql=false",
+                "--app.passwordHashing.bcryptStrength=4",
+                "--app.loginRateLimit.perAddress.capacity=3",
+                "--app.loginRateLimit.perAddress.refillMs=60000",
+                "--app.loginRateLimit.trustedProxies=127\\.0\\.0\\.1|0:0:0:0:0:0:0:1");
+        client = WebTestClient.bindToServer()
+                .baseUrl("http://localhost:" + context.getEnvironment().getProperty("local.server.port"))
+                .build();
+    }
+
+    @AfterAll
+    static void stop() {
+        context.close();
+    }
+
+    @Test
+    void aLockedOutClientDoesNotLockOutTheOthersBehindTheProxy() {
+        for (int i = 0; i < 3; i++) {
+            signin("attacker" + i, "203.0.113.7").expectStatus().isUnauthorized();
+        }
+        signin("attacker3", "203.0.113.7")
+                .expectStatus().isEqualTo(429)
+                .expectHeader().exists(HttpHeaders.RETRY_AFTER);
+
+        signin("someone", "198.51.100.20").expectStatus().isUnauthorized();
+    }
+
+    private static WebTestClient.ResponseSpec signin(String username, String clientAddress) {
+        return client.post().uri("/api/auth/signin")
+                .header("X-Forwarded-For", clientAddress)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("username", username, "password", "123456"))
+                .exchange();
+    }
+}
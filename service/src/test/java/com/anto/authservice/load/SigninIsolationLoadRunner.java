@@ -0,0 +1,149 @@
+package com.anto.authservice.load;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Measures the latency of the cheap endpoints (/api/test/all and /api/auth/refreshtoken) on their own
+ * and again while a burst of concurrent signins saturates bcrypt. With signin hashing on its own pool
+ * the second run should stay close to the first, and the burst is shed with 503 once the queue fills up.
+ * <p>
+ * Start the service with {@code app.loginRateLimit.enabled=false} (e.g. {@code docker compose up} with
+ * {@code APP_LOGINRATELIMIT_ENABLED=false}), since every signin comes from one address, then run from the service directory:
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/test-classpath.txt -Dmdep.includeScope=test
+ * java -cp target/test-classes:$(cat target/test-classpath.txt) com.anto.authservice.load.SigninIsolationLoadRunner [baseUrl] [signinClients] [seconds]
+ * </pre>
+ */
+public class SigninIsolationLoadRunner {
+
+    private static final Pattern REFRESH_TOKEN = Pattern.compile("\"refreshToken\":\"([^\"]+)\"");
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private final String baseUrl;
+
+    private SigninIsolationLoadRunner(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        int signinClients = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+        SigninIsolationLoadRunner runner = new SigninIsolationLoadRunner(baseUrl);
+        // separate users, since every signin replaces the refresh token of its user
+        String credentials = runner.signup("burst");
+        Matcher matcher = REFRESH_TOKEN.matcher(runner.post("/api/auth/signin", runner.signup("probe")).body());
+        if (!matcher.find()) {
+            throw new IllegalStateException("Signin failed, is the service running on " + baseUrl + "?");
+        }
+        String refreshRequest = "{\"refreshToken\":\"" + matcher.group(1) + "\"}";
+
+        System.out.println("== cheap endpoints only");
+        runner.probe(refreshRequest, seconds, 0, credentials);
+        System.out.println("== cheap endpoints during a burst of " + signinClients + " concurrent signins");
+        runner.probe(refreshRequest, seconds, signinClients, credentials);
+    }
+
+    private String signup(String prefix) throws Exception {
+        String username = prefix + System.currentTimeMillis() % 100000;
+        post("/api/auth/signup", "{\"username\":\"" + username + "\",\"email\":\"" + username + "@load.test\",\"password\":\"123456\"}");
+        return "{\"username\":\"" + username + "\",\"password\":\"123456\"}";
+    }
+
+    private void probe(String refreshRequest, int seconds, int signinClients, String credentials) throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        Map<Integer, AtomicInteger> signinStatuses = new ConcurrentHashMap<>();
+        ExecutorService burst = Executors.newFixedThreadPool(Math.max(1, signinClients));
+        for (int i = 0; i < signinClients; i++) {
+            burst.execute(() -> {
+                while (running.get()) {
+                    int status = send(() -> post("/api/auth/signin", credentials).statusCode());
+                    signinStatuses.computeIfAbsent(status, s -> new AtomicInteger()).incrementAndGet();
+                }
+            });
+        }
+
+        List<Long> testAll = Collections.synchronizedList(new ArrayList<>());
+        List<Long> refresh = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService probes = Executors.newFixedThreadPool(2);
+        probes.execute(() -> measure(running, testAll, () -> get("/api/test/all").statusCode()));
+        probes.execute(() -> measure(running, refresh, () -> post("/api/auth/refreshtoken", refreshRequest).statusCode()));
+
+        TimeUnit.SECONDS.sleep(seconds);
+        running.set(false);
+        probes.shutdown();
+        burst.shutdown();
+        probes.awaitTermination(30, TimeUnit.SECONDS);
+        burst.awaitTermination(30, TimeUnit.SECONDS);
+
+        report("GET  /api/test/all", testAll);
+        report("POST /api/auth/refreshtoken", refresh);
+        if (signinClients > 0) {
+            System.out.println("signin responses by status: " + signinStatuses);
+        }
+    }
+
+    private void measure(AtomicBoolean running, List<Long> latencies, Request request) {
+        while (running.get()) {
+            long start = System.nanoTime();
+            send(request);
+            latencies.add(System.nanoTime() - start);
+        }
+    }
+
+    private static void report(String name, List<Long> latencies) {
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        if (sorted.isEmpty()) {
+            System.out.printf("%-30s no samples%n", name);
+            return;
+        }
+        System.out.printf("%-30s n=%-6d p50=%6.1f ms  p99=%6.1f ms  max=%6.1f ms%n", name, sorted.size(),
+                percentile(sorted, 0.50), percentile(sorted, 0.99), sorted.get(sorted.size() - 1) / 1e6);
+    }
+
+    private static double percentile(List<Long> sorted, double percentile) {
+        return sorted.get((int) Math.min(sorted.size() - 1, Math.ceil(percentile * sorted.size()) - 1)) / 1e6;
+    }
+
+    private int send(Request request) {
+        try {
+            return request.send();
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+        return client.send(HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> post(String path, String json) throws Exception {
+        return client.send(HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    @FunctionalInterface
+    private interface Request {
+        int send() throws Exception;
+    }
+}
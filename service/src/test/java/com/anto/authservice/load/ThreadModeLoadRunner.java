@@ -0,0 +1,208 @@
+package com.anto.authservice.load;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Drives a fixed number of concurrent clients, 5000 by default, each rotating its own refresh token in a loop, which
+ * is a JDBC lookup and update per request, and reports throughput, latency and the resident memory of the service.
+ * Run it once against the service on platform threads and once with the virtual profile to compare the two modes.
+ * <p>
+ * Clients are chains of asynchronous requests, so the runner itself needs no thread per client. Start the service
+ * with a low bcrypt cost and without the login rate limit so setting up the sessions is quick, and raise the open file
+ * limit for 5000 sockets:
+ * <pre>
+ * ulimit -n 20000
+ * mvn spring-boot:run -Dspring-boot.run.arguments="--app.passwordHashing.bcryptStrength=4 --app.loginRateLimit.enabled=false"
+ * mvn spring-boot:run -Dspring-boot.run.arguments="--app.passwordHashing.bcryptStrength=4 --app.loginRateLimit.enabled=false --spring.profiles.active=virtual"
+ * </pre>
+ * then from the service directory, with the pid of the service for the memory figures:
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/test-classpath.txt -Dmdep.includeScope=test
+ * java -cp target/test-classes:$(cat target/test-classpath.txt) com.anto.authservice.load.ThreadModeLoadRunner [baseUrl] [pid] [clients] [seconds]
+ * </pre>
+ */
+public class ThreadModeLoadRunner {
+
+    private static final Pattern REFRESH_TOKEN = Pattern.compile("\"refreshToken\":\"([^\"]+)\"");
+    // sessions are opened this many at a time, the hashing pool sheds anything beyond its queue
+    private static final int SIGNIN_CONCURRENCY = 16;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(30))
+            .build();
+    private final String baseUrl;
+
+    private ThreadModeLoadRunner(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        long pid = args.length > 1 ? Long.parseLong(args[1]) : -1;
+        int clients = args.length > 2 ? Integer.parseInt(args[2]) : 5000;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 30;
+
+        ThreadModeLoadRunner runner = new ThreadModeLoadRunner(baseUrl);
+        List<String> tokens = runner.openSessions(runner.signup(), clients);
+        System.out.printf("%d sessions open, resident memory before the run: %s%n", tokens.size(), residentMemory(pid));
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        Queue<Long> latencies = new ConcurrentLinkedQueue<>();
+        Map<Integer, AtomicInteger> statuses = new ConcurrentHashMap<>();
+        List<CompletableFuture<Void>> clientsDone = new ArrayList<>();
+        long start = System.nanoTime();
+        for (String token : tokens) {
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            clientsDone.add(done);
+            runner.rotate(token, running, latencies, statuses, done);
+        }
+
+        TimeUnit.SECONDS.sleep(seconds);
+        // sampled while every client still has a request in flight
+        String peakMemory = residentMemory(pid);
+        running.set(false);
+        CompletableFuture.allOf(clientsDone.toArray(CompletableFuture[]::new)).get(60, TimeUnit.SECONDS);
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        System.out.printf("%d clients: %.0f requests/s, p50=%.1f ms, p99=%.1f ms, max=%.1f ms%n", clients,
+                sorted.size() / elapsedSeconds, percentile(sorted, 0.50), percentile(sorted, 0.99),
+                sorted.isEmpty() ? 0 : sorted.get(sorted.size() - 1) / 1e6);
+        System.out.println("responses by status: " + statuses);
+        System.out.println("resident memory under load: " + peakMemory);
+    }
+
+    /**
+     * Each client keeps one request in flight: the next rotation is sent as soon as the previous one answered.
+     */
+    private void rotate(String token, AtomicBoolean running, Queue<Long> latencies, Map<Integer, AtomicInteger> statuses,
+                        CompletableFuture<Void> done) {
+        if (!running.get()) {
+            done.complete(null);
+            return;
+        }
+        long start = System.nanoTime();
+        postAsync("/api/auth/refreshtoken", "{\"refreshToken\":\"" + token + "\"}").whenComplete((response, error) -> {
+            latencies.add(System.nanoTime() - start);
+            int status = error != null ? -1 : response.statusCode();
+            statuses.computeIfAbsent(status, s -> new AtomicInteger()).incrementAndGet();
+            Matcher matcher = error != null ? null : REFRESH_TOKEN.matcher(response.body());
+            if (matcher != null && matcher.find()) {
+                rotate(matcher.group(1), running, latencies, statuses, done);
+            } else {
+                // a failed client stops, its session may have been revoked
+                done.complete(null);
+            }
+        });
+    }
+
+    private String signup() throws Exception {
+        String username = "threads" + System.currentTimeMillis() % 100000;
+        post("/api/auth/signup", "{\"username\":\"" + username + "\",\"email\":\"" + username + "@load.test\",\"password\":\"123456\"}");
+        return "{\"username\":\"" + username + "\",\"password\":\"123456\"}";
+    }
+
+    private List<String> openSessions(String credentials, int count) throws Exception {
+        List<String> tokens = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger remaining = new AtomicInteger(count);
+        ExecutorService workers = Executors.newFixedThreadPool(SIGNIN_CONCURRENCY);
+        try {
+            List<CompletableFuture<Void>> done = new ArrayList<>();
+            for (int i = 0; i < SIGNIN_CONCURRENCY; i++) {
+                done.add(CompletableFuture.runAsync(() -> {
+                    while (remaining.getAndDecrement() > 0) {
+                        tokens.add(signin(credentials));
+                    }
+                }, workers));
+            }
+            CompletableFuture.allOf(done.toArray(CompletableFuture[]::new)).get();
+        } finally {
+            workers.shutdown();
+        }
+
+        return tokens;
+    }
+
+    private String signin(String credentials) {
+        while (true) {
+            try {
+                HttpResponse<String> response = post("/api/auth/signin", credentials);
+                Matcher matcher = REFRESH_TOKEN.matcher(response.body());
+                if (matcher.find()) {
+                    return matcher.group(1);
+                }
+                if (response.statusCode() != 503) {
+                    throw new IllegalStateException("Signin failed with " + response.statusCode() + ", is the service running on " + baseUrl + "?");
+                }
+                TimeUnit.MILLISECONDS.sleep(50);
+            } catch (IOException | InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * VmRSS (current) and VmHWM (peak) of the service, read from /proc so only available on Linux.
+     */
+    private static String residentMemory(long pid) {
+        if (pid < 0) {
+            return "unknown (pass the pid of the service)";
+        }
+        try {
+            return Files.readAllLines(Path.of("/proc", String.valueOf(pid), "status")).stream()
+                    .filter(line -> line.startsWith("VmRSS") || line.startsWith("VmHWM"))
+                    .map(line -> line.replaceAll("\\s+", " "))
+                    .reduce((a, b) -> a + ", " + b)
+                    .orElse("unknown");
+        } catch (IOException e) {
+            return "unknown (" + e.getMessage() + ")";
+        }
+    }
+
+    private static double percentile(List<Long> sorted, double percentile) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        return sorted.get((int) Math.min(sorted.size() - 1, Math.ceil(percentile * sorted.size()) - 1)) / 1e6;
+    }
+
+    private HttpResponse<String> post(String path, String json) throws IOException, InterruptedException {
+        return client.send(request(path, json), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private CompletableFuture<HttpResponse<String>> postAsync(String path, String json) {
+        return client.sendAsync(request(path, json), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest request(String path, String json) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(60))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+}
@@ -0,0 +1,162 @@
+package com.anto.authservice.load;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the throughput of creating users through POST /api/admin/users/import, 20000 by default, with creating
+ * them one signup request at a time from 16 concurrent clients, 1000 by default. Both are bound by bcrypt, so run the
+ * service with the bcrypt cost of production to see how much of the difference is left once hashing dominates, and
+ * with a low cost to see the cost of the database round trips:
+ * <pre>
+ * mvn spring-boot:run -Dspring-boot.run.arguments="--app.passwordHashing.bcryptStrength=4"
+ * </pre>
+ * then from the service directory:
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/test-classpath.txt -Dmdep.includeScope=test
+ * java -cp target/test-classes:$(cat target/test-classpath.txt) com.anto.authservice.load.UserImportLoadRunner [baseUrl] [importUsers] [signupUsers]
+ * </pre>
+ */
+public class UserImportLoadRunner {
+
+    private static final Pattern ACCESS_TOKEN = Pattern.compile("\"accessToken\":\"([^\"]+)\"");
+    private static final Pattern IMPORTED = Pattern.compile("\"imported\":(\\d+),\"failed\":(\\d+)");
+    private static final int SIGNUP_CONCURRENCY = 16;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final String baseUrl;
+    // keeps the usernames of repeated runs apart, they are at most 20 characters
+    private final String runId = Long.toString(System.currentTimeMillis() % 1_000_000, 36);
+
+    private UserImportLoadRunner(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        int importUsers = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+        int signupUsers = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+
+        UserImportLoadRunner runner = new UserImportLoadRunner(baseUrl);
+        String adminToken = runner.adminToken();
+        runner.importUsers(adminToken, importUsers);
+        runner.signupUsers(signupUsers);
+    }
+
+    private void importUsers(String adminToken, int count) throws Exception {
+        Path file = Files.createTempFile("users", ".ndjson");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+                for (int i = 0; i < count; i++) {
+                    writer.write(signupJson("i" + runId + "n" + i));
+                    writer.newLine();
+                }
+            }
+
+            long start = System.nanoTime();
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/admin/users/import"))
+                    .header("Content-Type", "application/x-ndjson")
+                    .header("Authorization", "Bearer " + adminToken)
+                    .timeout(Duration.ofHours(1))
+                    .POST(HttpRequest.BodyPublishers.ofFile(file))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            Matcher matcher = IMPORTED.matcher(response.body());
+            if (!matcher.find()) {
+                throw new IllegalStateException("Import failed with " + response.statusCode() + ": " + response.body());
+            }
+            System.out.printf("import: %s users imported, %s failed, in %.1f s, %.0f users/s%n",
+                    matcher.group(1), matcher.group(2), seconds, Integer.parseInt(matcher.group(1)) / seconds);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private void signupUsers(int count) throws Exception {
+        AtomicInteger remaining = new AtomicInteger(count);
+        AtomicInteger created = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(SIGNUP_CONCURRENCY);
+        long start = System.nanoTime();
+        try {
+            List<CompletableFuture<Void>> done = new ArrayList<>();
+            for (int i = 0; i < SIGNUP_CONCURRENCY; i++) {
+                done.add(CompletableFuture.runAsync(() -> {
+                    int n;
+                    while ((n = remaining.getAndDecrement()) > 0) {
+                        if (signup(signupJson("s" + runId + "n" + n))) {
+                            created.incrementAndGet();
+                        }
+                    }
+                }, workers));
+            }
+            CompletableFuture.allOf(done.toArray(CompletableFuture[]::new)).get();
+        } finally {
+            workers.shutdown();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("signup: %d users created by %d clients in %.1f s, %.0f users/s%n",
+                created.get(), SIGNUP_CONCURRENCY, seconds, created.get() / seconds);
+    }
+
+    /**
+     * Retries while the hashing pool sheds the request with a 503.
+     */
+    private boolean signup(String json) {
+        while (true) {
+            try {
+                HttpResponse<String> response = post("/api/auth/signup", json);
+                if (response.statusCode() != 503) {
+                    return response.statusCode() == 200;
+                }
+                TimeUnit.MILLISECONDS.sleep(50);
+            } catch (IOException | InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private String adminToken() throws Exception {
+        String username = "a" + runId;
+        post("/api/auth/signup", "{\"username\":\"" + username + "\",\"email\":\"" + username + "@load.test\","
+                + "\"password\":\"123456\",\"roles\":[\"admin\"]}");
+        HttpResponse<String> response = post("/api/auth/signin", "{\"username\":\"" + username + "\",\"password\":\"123456\"}");
+        Matcher matcher = ACCESS_TOKEN.matcher(response.body());
+        if (!matcher.find()) {
+            throw new IllegalStateException("Signin failed with " + response.statusCode() + ", is the service running on " + baseUrl + "?");
+        }
+        return matcher.group(1);
+    }
+
+    private static String signupJson(String username) {
+        return "{\"username\":\"" + username + "\",\"email\":\"" + username + "@load.test\",\"password\":\"123456\"}";
+    }
+
+    private HttpResponse<String> post(String path, String json) throws IOException, InterruptedException {
+        return client.send(HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(60))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
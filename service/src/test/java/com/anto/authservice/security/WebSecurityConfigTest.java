@@ -0,0 +1,91 @@
+package com.anto.authservice.security;
+
+import com.anto.authservice.Application;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs the servlet stack on H2 and checks which endpoints an anonymous caller, a user and an admin can reach.
+ */
+class WebSecurityConfigTest {
+
+    private static ConfigurableApplicationContext context;
+    private static WebTestClient client;
+
+    @BeforeAll
+    static void start() {
+        context = new SpringApplicationBuilder(Application.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:security;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.show-sql=false",
+                "--app.passwordHashing.bcryptStrength=4");
+        client = WebTestClient.bindToServer()
+                .baseUrl("http://localhost:" + context.getEnvironment().getProperty("local.server.port"))
+                .build();
+    }
+
+    @AfterAll
+    static void stop() {
+        context.close();
+    }
+
+    @Test
+    void prometheusNeedsAnAdmin() {
+        client.get().uri("/actuator/prometheus")
+                .exchange()
+                .expectStatus().isUnauthorized();
+        client.get().uri("/actuator/prometheus").header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken("promuser", "user"))
+                .exchange()
+                .expectStatus().is4xxClientError();
+        client.get().uri("/actuator/prometheus").header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken("promadmin", "admin"))
+                .exchange()
+                .expectStatus().isOk();
+        client.get().uri("/actuator/health")
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    @Test
+    void introspectionNeedsAGateway() {
+        String userToken = accessToken("introuser", "user");
+        Map<String, List<String>> request = Map.of("tokens", List.of(userToken));
+
+        post("/api/auth/introspect/batch", request)
+                .expectStatus().isUnauthorized();
+        client.post().uri("/api/auth/introspect/batch").header(HttpHeaders.AUTHORIZATION, "Bearer " + userToken)
+                .contentType(MediaType.APPLICATION_JSON).bodyValue(request)
+                .exchange()
+                .expectStatus().is4xxClientError();
+        client.post().uri("/api/auth/introspect/batch").header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken("introgateway", "gateway"))
+                .contentType(MediaType.APPLICATION_JSON).bodyValue(request)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.tokens[0].active").isEqualTo(true);
+    }
+
+    private static String accessToken(String username, String role) {
+        post("/api/auth/signup", Map.of("username", username, "email", username + "@test.com", "password", "123456",
+                "roles", List.of(role)))
+                .expectStatus().isOk();
+
+        return (String) post("/api/auth/signin", Map.of("username", username, "password", "123456"))
+                .expectStatus().isOk()
+                .expectBody(Map.class).returnResult().getResponseBody().get("accessToken");
+    }
+
+    private static WebTestClient.ResponseSpec post(String path, Object body) {
+        return client.post().uri(path).contentType(MediaType.APPLICATION_JSON).bodyValue(body).exchange();
+    }
+}
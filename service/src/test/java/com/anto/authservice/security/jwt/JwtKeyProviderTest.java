@@ -0,0 +1,39 @@
+package com.anto.authservice.security.jwt;
+
+import io.jsonwebtoken.security.UnsupportedKeyException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JwtKeyProviderTest {
+
+    private static final String SECRET = "ufGJqqC94OBE8qJFigbB55Pf2mLCXUDomQKP87qaGl/Nj9b/aWOlvtJ+bBtggH9XnBHR4M7SBtGOq++XfXw0iw==";
+    private static final String OTHER_SECRET = "mZ3cN8n9a3sX4fQh0Tg7Lw5vJx2Kp6Ry1Ub8Ie4Oa7Sd9Fg3Hj5Kl2Zx6Cv8Bn1Mq4We7Rt0Yu3Io6Pa9Sd2Fg5Hj8Kl1Zx4Cv7Bn==";
+
+    @Test
+    void anExpiredKeyIsDroppedAfterAFailedReload(@TempDir Path keys) throws Exception {
+        Files.writeString(keys.resolve("old.key"), SECRET);
+        // no grace, a removed key is dropped on the reload after its removal
+        JwtKeyProvider keyProvider = new JwtKeyProvider("", "HS512", "", keys.toString(), 0, 0);
+
+        Files.delete(keys.resolve("old.key"));
+        Files.writeString(keys.resolve("new.key"), OTHER_SECRET);
+        keyProvider.reload();
+        assertThat(keyProvider.getVerificationKey("old")).isNotNull();
+
+        // the expired key is due for removal, but the keyring cannot be rebuilt
+        Files.writeString(keys.resolve("broken.key"), "not a key");
+        keyProvider.reload();
+        assertThat(keyProvider.getVerificationKey("old")).isNotNull();
+
+        Files.delete(keys.resolve("broken.key"));
+        keyProvider.reload();
+        assertThatThrownBy(() -> keyProvider.getVerificationKey("old")).isInstanceOf(UnsupportedKeyException.class);
+        assertThat(keyProvider.getSigningKey().keyId()).isEqualTo("new");
+    }
+}
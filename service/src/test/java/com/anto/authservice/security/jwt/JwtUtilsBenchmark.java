@@ -0,0 +1,83 @@
+package com.anto.authservice.security.jwt;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.crypto.SecretKey;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the per-request cost of the token checks done by {@link AuthTokenFilter}.
+ * Run from the service directory with:
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/test-classpath.txt -Dmdep.includeScope=test
+ * java -cp target/test-classes:target/classes:$(cat target/test-classpath.txt) com.anto.authservice.security.jwt.JwtUtilsBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtUtilsBenchmark {
+
+    private static final String SECRET = "ufGJqqC94OBE8qJFigbB55Pf2mLCXUDomQKP87qaGl/Nj9b/aWOlvtJ+bBtggH9XnBHR4M7SBtGOq++XfXw0iw==";
+
+    private JwtUtils jwtUtils;
+    private JwtUtils cachingJwtUtils;
+    private String token;
+
+    @Setup
+    public void setup() {
+        // nothing is revoked, so the revocation check never gets past the Bloom filter to the repository
+        TokenRevocationList revocationList = new TokenRevocationList(null, 300000, 10000);
+        JwtKeyProvider keyProvider = new JwtKeyProvider(SECRET, "HS512", "", "", 3600000, 0);
+        jwtUtils = new JwtUtils(keyProvider, revocationList, new SimpleMeterRegistry(), 3600000, false, 0);
+        cachingJwtUtils = new JwtUtils(keyProvider, revocationList, new SimpleMeterRegistry(), 3600000, false, 10000);
+        token = jwtUtils.generateTokenFromUsername("mod");
+    }
+
+    /**
+     * The previous filter path: decode the secret and build a parser for validation,
+     * then do it all again to read the subject.
+     */
+    @Benchmark
+    public String decodeAndParseTwice() {
+        Jwts.parser().verifyWith(legacyKey()).build().parse(token);
+        return Jwts.parser().verifyWith(legacyKey()).build()
+                .parseSignedClaims(token).getPayload().getSubject();
+    }
+
+    @Benchmark
+    public String cachedParserSinglePass() {
+        return jwtUtils.getClaimsFromJwt(token).map(Claims::getSubject).orElseThrow();
+    }
+
+    /**
+     * A token seen before: a cache lookup, the keyring generation and the revocation filter, no crypto or parsing.
+     */
+    @Benchmark
+    public String verifiedTokenCacheHit() {
+        return cachingJwtUtils.getClaimsFromJwt(token).map(Claims::getSubject).orElseThrow();
+    }
+
+    private SecretKey legacyKey() {
+        return Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(JwtUtilsBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,85 @@
+package com.anto.authservice.security.jwt;
+
+import com.anto.authservice.repository.RevokedTokenRepository;
+import com.anto.authservice.service.UserDetailsImpl;
+import com.anto.authservice.service.invalidation.InvalidationEvent;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class JwtUtilsVerifiedCacheTest {
+
+    private static final String SECRET = "ufGJqqC94OBE8qJFigbB55Pf2mLCXUDomQKP87qaGl/Nj9b/aWOlvtJ+bBtggH9XnBHR4M7SBtGOq++XfXw0iw==";
+    private static final String OTHER_SECRET = "mZ3cN8n9a3sX4fQh0Tg7Lw5vJx2Kp6Ry1Ub8Ie4Oa7Sd9Fg3Hj5Kl2Zx6Cv8Bn1Mq4We7Rt0Yu3Io6Pa9Sd2Fg5Hj8Kl1Zx4Cv7Bn==";
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RevokedTokenRepository revokedTokenRepository = mock(RevokedTokenRepository.class);
+    private final TokenRevocationList revocationList = new TokenRevocationList(revokedTokenRepository, 300000, 10000);
+
+    @Test
+    void aTokenSeenBeforeSkipsVerification() {
+        JwtUtils jwtUtils = jwtUtils(new JwtKeyProvider(SECRET, "HS512", "", "", 3600000, 0), true);
+        String token = jwtUtils.generateTokenFromUser(new UserDetailsImpl(7L, "mod", "mod@test.com", null,
+                List.of(new SimpleGrantedAuthority("ROLE_MODERATOR"))));
+
+        VerifiedToken first = jwtUtils.verifyJwt(token).orElseThrow();
+        VerifiedToken second = jwtUtils.verifyJwt(token).orElseThrow();
+
+        assertThat(second).isSameAs(first);
+        assertThat(second.statelessUser().getId()).isEqualTo(7L);
+        assertThat(parses("success")).isEqualTo(1);
+        assertThat(parses("cached")).isEqualTo(1);
+    }
+
+    @Test
+    void aCachedTokenIsStillCheckedForRevocation() {
+        JwtUtils jwtUtils = jwtUtils(new JwtKeyProvider(SECRET, "HS512", "", "", 3600000, 0), false);
+        String token = jwtUtils.generateTokenFromUsername("user");
+        Claims claims = jwtUtils.getClaimsFromJwt(token).orElseThrow();
+
+        revocationList.onInvalidation(InvalidationEvent.accessToken(claims.getId(), claims.getExpiration().toInstant()));
+        when(revokedTokenRepository.existsById(claims.getId())).thenReturn(true);
+
+        assertThat(jwtUtils.getClaimsFromJwt(token)).isEmpty();
+        assertThat(parses("revoked")).isEqualTo(1);
+    }
+
+    @Test
+    void aDroppedKeyNoLongerVouchesForCachedTokens(@TempDir Path keys) throws Exception {
+        Files.writeString(keys.resolve("old.key"), SECRET);
+        // no grace, a removed key is dropped on the reload after its removal
+        JwtKeyProvider keyProvider = new JwtKeyProvider("", "HS512", "", keys.toString(), 0, 0);
+        JwtUtils jwtUtils = jwtUtils(keyProvider, false);
+        String token = jwtUtils.generateTokenFromUsername("user");
+        assertThat(jwtUtils.getClaimsFromJwt(token)).isPresent();
+
+        Files.delete(keys.resolve("old.key"));
+        Files.writeString(keys.resolve("new.key"), OTHER_SECRET);
+        keyProvider.reload();
+        // retired but still verifying: checked again under the new keyring, then cached again
+        assertThat(jwtUtils.getClaimsFromJwt(token)).isPresent();
+        assertThat(parses("success")).isEqualTo(2);
+
+        keyProvider.reload();
+        assertThat(jwtUtils.getClaimsFromJwt(token)).isEmpty();
+    }
+
+    private JwtUtils jwtUtils(JwtKeyProvider keyProvider, boolean stateless) {
+        return new JwtUtils(keyProvider, revocationList, meterRegistry, 3600000, stateless, 1000);
+    }
+
+    private long parses(String outcome) {
+        return meterRegistry.get("auth.jwt.parse").tag("outcome", outcome).timer().count();
+    }
+}
@@ -0,0 +1,105 @@
+package com.anto.authservice.security.ratelimit;
+
+import com.anto.authservice.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LoginRateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void bucketAllowsABurstThenOneTokenPerRefill() {
+        long now = 1_000 * SECOND;
+        TokenBucket bucket = new TokenBucket(now);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(bucket.tryTake(now, SECOND, 3 * SECOND)).isZero();
+        }
+        assertThat(bucket.tryTake(now, SECOND, 3 * SECOND)).isEqualTo(SECOND);
+        assertThat(bucket.tryTake(now + SECOND / 2, SECOND, 3 * SECOND)).isEqualTo(SECOND / 2);
+
+        assertThat(bucket.tryTake(now + SECOND, SECOND, 3 * SECOND)).isZero();
+        assertThat(bucket.tryTake(now + SECOND, SECOND, 3 * SECOND)).isPositive();
+        // a long idle bucket is full again, never more than full
+        assertThat(bucket.tryTake(now + 100 * SECOND, SECOND, 3 * SECOND)).isZero();
+        assertThat(bucket.tryTake(now + 100 * SECOND, SECOND, 3 * SECOND)).isZero();
+        assertThat(bucket.tryTake(now + 100 * SECOND, SECOND, 3 * SECOND)).isZero();
+        assertThat(bucket.tryTake(now + 100 * SECOND, SECOND, 3 * SECOND)).isPositive();
+    }
+
+    @Test
+    void usernamesAreLimitedWhateverTheirCase() {
+        LoginRateLimiter limiter = limiter(2, 50);
+
+        limiter.acquire("alice", "10.0.0.1");
+        limiter.acquire("ALICE", "10.0.0.2");
+
+        assertThatThrownBy(() -> limiter.acquire("Alice", "10.0.0.3"))
+                .isInstanceOfSatisfying(TooManyRequestsException.class,
+                        e -> assertThat(e.getRetryAfterSeconds()).isBetween(1L, 60L));
+        limiter.acquire("bob", "10.0.0.3");
+        assertThat(meterRegistry.get("auth.signin.throttled").tag("limit", "user").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void anAddressIsLimitedAcrossUsernames() {
+        LoginRateLimiter limiter = limiter(10, 3);
+
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire("user" + i, "10.0.0.1");
+        }
+
+        assertThatThrownBy(() -> limiter.acquire("user9", "10.0.0.1")).isInstanceOf(TooManyRequestsException.class);
+        limiter.acquire("user9", "10.0.0.2");
+        limiter.acquire("user9", null);
+    }
+
+    @Test
+    void concurrentAttemptsNeverTakeMoreThanTheCapacity() throws Exception {
+        LoginRateLimiter limiter = limiter(100, 100_000);
+        AtomicInteger granted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<CompletableFuture<Void>> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            threads.add(CompletableFuture.runAsync(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                for (int i = 0; i < 50; i++) {
+                    try {
+                        limiter.acquire("target", null);
+                        granted.incrementAndGet();
+                    } catch (TooManyRequestsException e) {
+                        // expected once the bucket is empty
+                    }
+                }
+            }));
+        }
+
+        start.countDown();
+        CompletableFuture.allOf(threads.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+
+        assertThat(granted).hasValue(100);
+    }
+
+    private LoginRateLimiter limiter(int perUserCapacity, int perAddressCapacity) {
+        // refills far slower than the test runs
+        return new LoginRateLimiter(meterRegistry, true, perUserCapacity, 60_000, perAddressCapacity, 60_000, 1000);
+    }
+}
@@ -0,0 +1,36 @@
+package com.anto.authservice.security.ratelimit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+
+import java.net.InetSocketAddress;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReactiveClientAddressResolverTest {
+
+    private final ReactiveClientAddressResolver resolver = new ReactiveClientAddressResolver("10\\.0\\.0\\.(5|6)");
+
+    @Test
+    void anUntrustedPeerCannotNameItsOwnAddress() {
+        assertThat(resolver.resolve(signin("203.0.113.7", "198.51.100.1"))).isEqualTo("203.0.113.7");
+        assertThat(new ReactiveClientAddressResolver("").resolve(signin("10.0.0.5", "198.51.100.1"))).isEqualTo("10.0.0.5");
+    }
+
+    @Test
+    void aTrustedProxyNamesTheClientBehindIt() {
+        assertThat(resolver.resolve(signin("10.0.0.5", "198.51.100.1"))).isEqualTo("198.51.100.1");
+        // only the addresses appended by trusted proxies count, whatever the client put in front of them
+        assertThat(resolver.resolve(signin("10.0.0.5", "192.0.2.99, 198.51.100.1, 10.0.0.6"))).isEqualTo("198.51.100.1");
+        assertThat(resolver.resolve(signin("10.0.0.5", null))).isEqualTo("10.0.0.5");
+    }
+
+    private static MockServerHttpRequest signin(String peer, String forwardedFor) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.post("/api/auth/signin")
+                .remoteAddress(new InetSocketAddress(peer, 40000));
+        if (forwardedFor != null) {
+            request.header("X-Forwarded-For", forwardedFor);
+        }
+        return request.build();
+    }
+}
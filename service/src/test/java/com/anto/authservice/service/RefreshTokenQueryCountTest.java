@@ -0,0 +1,156 @@
+package com.anto.authservice.service;
+
+import com.anto.authservice.exception.TokenRefreshException;
+import com.anto.authservice.model.ERole;
+import com.anto.authservice.model.RefreshToken;
+import com.anto.authservice.model.Role;
+import com.anto.authservice.model.User;
+import com.anto.authservice.service.token.JpaRefreshTokenStore;
+import com.anto.authservice.service.token.RefreshTokens;
+import com.anto.authservice.service.token.RotatedRefreshToken;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Pins the number of SQL statements issued for signin and refresh token rotation, so an added lazy load or extra lookup shows up here.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import({RefreshTokenService.class, JpaRefreshTokenStore.class, SimpleMeterRegistry.class})
+class RefreshTokenQueryCountTest {
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        Role userRole = new Role(ERole.ROLE_USER);
+        Role modRole = new Role(ERole.ROLE_MODERATOR);
+        entityManager.persist(userRole);
+        entityManager.persist(modRole);
+
+        user = new User("refresher", "refresher@test.com", "hash");
+        user.getRoles().add(userRole);
+        user.getRoles().add(modRole);
+        entityManager.persist(user);
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        flushAndResetStatistics();
+    }
+
+    @Test
+    void signinIsOneInsertAndKeepsOtherSessions() {
+        String other = saveToken(Instant.now().plus(1, ChronoUnit.HOURS));
+
+        String token = refreshTokenService.createRefreshToken(UserDetailsImpl.build(user));
+        entityManager.flush();
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(refreshTokenService.rotateRefreshToken(token).user().getId()).isEqualTo(user.getId());
+        assertThat(refreshTokenService.rotateRefreshToken(other).user().getId()).isEqualTo(user.getId());
+    }
+
+    @Test
+    void refreshIsOneLookupAndOneConditionalUpdate() {
+        String token = saveToken(Instant.now().plus(1, ChronoUnit.HOURS));
+
+        RotatedRefreshToken rotated = refreshTokenService.rotateRefreshToken(token);
+
+        // the projection lookup and the update of the session row, no entity select
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(rotated.token()).isNotEqualTo(token);
+        assertThat(rotated.user().getId()).isEqualTo(user.getId());
+        assertThat(rotated.user().getUsername()).isEqualTo("refresher");
+        assertThat(rotated.user().getAuthorities()).extracting(GrantedAuthority::getAuthority)
+                .containsExactlyInAnyOrder("ROLE_USER", "ROLE_MODERATOR");
+    }
+
+    @Test
+    void unknownTokenIsRejectedWithOneQuery() {
+        assertThatThrownBy(() -> refreshTokenService.rotateRefreshToken("missing-token"))
+                .isInstanceOf(TokenRefreshException.class);
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void expiredTokenIsDeletedWithoutLoadingIt() {
+        String token = saveToken(Instant.now().minus(1, ChronoUnit.MINUTES));
+
+        assertThatThrownBy(() -> refreshTokenService.rotateRefreshToken(token))
+                .isInstanceOf(TokenRefreshException.class)
+                .hasMessageContaining("expired");
+
+        // the lookup and a bulk delete, no entity select in between
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void reusedTokenRevokesItsSession() {
+        String token = saveToken(Instant.now().plus(1, ChronoUnit.HOURS));
+        String next = refreshTokenService.rotateRefreshToken(token).token();
+        flushAndResetStatistics();
+
+        assertThatThrownBy(() -> refreshTokenService.rotateRefreshToken(token))
+                .isInstanceOf(TokenRefreshException.class)
+                .hasMessageContaining("already used");
+        // the lookup finding nothing and the revoking update
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+
+        assertThatThrownBy(() -> refreshTokenService.rotateRefreshToken(next))
+                .isInstanceOf(TokenRefreshException.class)
+                .hasMessageContaining("revoked");
+    }
+
+    /**
+     * @return the first token of a new session
+     */
+    private String saveToken(Instant expiryDate) {
+        byte[] familyId = RefreshTokens.newFamilyId();
+        String token = RefreshTokens.generate(familyId, 0);
+        RefreshToken refreshToken = new RefreshToken();
+        refreshToken.setUser(user);
+        refreshToken.setFamilyId(familyId);
+        refreshToken.setTokenHash(RefreshTokens.hash(token));
+        refreshToken.setExpiryDate(expiryDate);
+        entityManager.persist(refreshToken);
+        flushAndResetStatistics();
+
+        return token;
+    }
+
+    private void flushAndResetStatistics() {
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+    }
+}
@@ -0,0 +1,84 @@
+package com.anto.authservice.service;
+
+import com.anto.authservice.model.ERole;
+import com.anto.authservice.model.Role;
+import com.anto.authservice.model.User;
+import com.anto.authservice.service.invalidation.InvalidationEvent;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Signup attaches the preloaded roles without reading the roles table, and every user shares the same authorities.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import(RoleRegistry.class)
+class RoleRegistryTest {
+
+    @Autowired
+    private RoleRegistry roleRegistry;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        entityManager.persist(new Role(ERole.ROLE_USER));
+        entityManager.persist(new Role(ERole.ROLE_MODERATOR));
+        entityManager.flush();
+        roleRegistry.onInvalidation(InvalidationEvent.roles());
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void newUserGetsRolesWithoutQueryingThem() {
+        User user = new User("newcomer", "newcomer@test.com", "hash");
+        user.getRoles().add(roleRegistry.get(ERole.ROLE_USER));
+        user.getRoles().add(roleRegistry.get(ERole.ROLE_MODERATOR));
+        entityManager.persist(user);
+        entityManager.flush();
+
+        // the user row and its two user_roles rows
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void usersShareTheAuthorityOfARole() {
+        User first = new User("first", "first@test.com", "hash");
+        first.getRoles().add(roleRegistry.get(ERole.ROLE_USER));
+        User second = new User("second", "second@test.com", "hash");
+        second.getRoles().add(roleRegistry.get(ERole.ROLE_USER));
+
+        assertThat(UserDetailsImpl.build(first).getAuthorities().iterator().next())
+                .isSameAs(UserDetailsImpl.build(second).getAuthorities().iterator().next())
+                .isSameAs(ERole.ROLE_USER.getAuthority());
+    }
+
+    @Test
+    void roleAddedAfterStartupIsLoadedOnFirstUse() {
+        entityManager.persist(new Role(ERole.ROLE_ADMIN));
+        entityManager.flush();
+
+        assertThat(roleRegistry.get(ERole.ROLE_ADMIN).getName()).isEqualTo(ERole.ROLE_ADMIN);
+    }
+}
@@ -0,0 +1,174 @@
+package com.anto.authservice.service;
+
+import com.anto.authservice.exception.ApiException;
+import com.anto.authservice.exception.ServiceOverloadedException;
+import com.anto.authservice.model.payload.response.TokenIntrospection;
+import com.anto.authservice.repository.RevokedTokenRepository;
+import com.anto.authservice.security.jwt.JwtKeyProvider;
+import com.anto.authservice.security.jwt.JwtUtils;
+import com.anto.authservice.security.jwt.TokenRevocationList;
+import com.anto.authservice.service.invalidation.InvalidationEvent;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TokenIntrospectionServiceTest {
+
+    private static final String SECRET = "ufGJqqC94OBE8qJFigbB55Pf2mLCXUDomQKP87qaGl/Nj9b/aWOlvtJ+bBtggH9XnBHR4M7SBtGOq++XfXw0iw==";
+
+    private final JwtKeyProvider keyProvider = new JwtKeyProvider(SECRET, "HS512", "", "", 3600000, 0);
+    private final RevokedTokenRepository revokedTokenRepository = mock(RevokedTokenRepository.class);
+    private final TokenRevocationList revocationList = new TokenRevocationList(revokedTokenRepository, 300000, 10000);
+    private final UserDetailsServiceImpl userDetailsService = mock(UserDetailsServiceImpl.class);
+    private final List<TokenIntrospectionService> services = new ArrayList<>();
+
+    @AfterEach
+    void shutdown() {
+        services.forEach(TokenIntrospectionService::shutdown);
+    }
+
+    @Test
+    void answersEveryTokenOfTheBatchInOrder() {
+        JwtUtils jwtUtils = jwtUtils(true, 3600000);
+        TokenIntrospectionService service = service(jwtUtils, 4, 1000);
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            tokens.add(jwtUtils.generateTokenFromUser(user("user" + i, "ROLE_USER")));
+        }
+        String revoked = jwtUtils.generateTokenFromUser(user("revoked", "ROLE_USER"));
+        revoke(jwtUtils, revoked);
+        tokens.set(10, "not-a-token");
+        tokens.set(50, jwtUtils(true, -1000).generateTokenFromUser(user("expired", "ROLE_USER")));
+        tokens.set(90, revoked);
+
+        List<TokenIntrospection> results = service.introspect(tokens).join().getTokens();
+
+        assertThat(results).hasSize(100);
+        assertThat(results.get(10)).isSameAs(TokenIntrospection.INACTIVE);
+        assertThat(results.get(50)).isSameAs(TokenIntrospection.INACTIVE);
+        assertThat(results.get(90)).isSameAs(TokenIntrospection.INACTIVE);
+        assertThat(results.get(99).isActive()).isTrue();
+        assertThat(results.get(99).getSubject()).isEqualTo("user99");
+        assertThat(results.get(99).getRoles()).containsExactly("ROLE_USER");
+        assertThat(results.get(99).getExpiresAt()).isGreaterThan(System.currentTimeMillis() / 1000);
+        assertThat(results.stream().filter(TokenIntrospection::isActive)).hasSize(97);
+    }
+
+    @Test
+    void tokensWithoutEmbeddedRolesCarryTheCurrentRolesOfTheirUser() {
+        JwtUtils jwtUtils = jwtUtils(false, 3600000);
+        TokenIntrospectionService service = service(jwtUtils, 1, 1000);
+        when(userDetailsService.loadUserByUsername("mod")).thenReturn(user("mod", "ROLE_MODERATOR"));
+        when(userDetailsService.loadUserByUsername("gone")).thenThrow(new UsernameNotFoundException("gone"));
+
+        List<TokenIntrospection> results = service.introspect(List.of(
+                jwtUtils.generateTokenFromUsername("mod"), jwtUtils.generateTokenFromUsername("gone"))).join().getTokens();
+
+        assertThat(results.get(0).getRoles()).containsExactly("ROLE_MODERATOR");
+        assertThat(results.get(1)).isSameAs(TokenIntrospection.INACTIVE);
+    }
+
+    @Test
+    void rejectsBatchesOverTheLimit() {
+        TokenIntrospectionService service = service(jwtUtils(true, 3600000), 1, 2);
+
+        assertThatThrownBy(() -> service.introspect(List.of("a", "b", "c"))).isInstanceOf(ApiException.class);
+    }
+
+    @Test
+    void turnsAwayBatchesOnceThePoolIsFull() throws Exception {
+        JwtUtils jwtUtils = jwtUtils(false, 3600000);
+        TokenIntrospectionService service = service(jwtUtils, 1, 1000);
+        CountDownLatch release = new CountDownLatch(1);
+        when(userDetailsService.loadUserByUsername(anyString())).thenAnswer(invocation -> {
+            release.await(10, TimeUnit.SECONDS);
+            return user(invocation.getArgument(0), "ROLE_USER");
+        });
+        List<String> one = List.of(jwtUtils.generateTokenFromUsername("slow"));
+
+        // one batch running, one queued
+        CompletableFuture<?> running = service.introspect(one);
+        CompletableFuture<?> queued = service.introspect(one);
+        assertThatThrownBy(() -> service.introspect(one)).isInstanceOf(ServiceOverloadedException.class);
+
+        release.countDown();
+        running.get(10, TimeUnit.SECONDS);
+        queued.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void aTurnedAwayBatchLeavesNoChunkBehind() throws Exception {
+        JwtUtils jwtUtils = jwtUtils(false, 3600000);
+        TokenIntrospectionService service = service(jwtUtils, 2, 1000);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger droppedLoads = new AtomicInteger();
+        when(userDetailsService.loadUserByUsername(anyString())).thenAnswer(invocation -> {
+            String username = invocation.getArgument(0);
+            if (username.startsWith("dropped")) {
+                droppedLoads.incrementAndGet();
+            }
+            release.await(10, TimeUnit.SECONDS);
+            return user(username, "ROLE_USER");
+        });
+
+        // two chunks keep both threads busy
+        CompletableFuture<?> running = service.introspect(tokens(jwtUtils, "slow", 32));
+        // its first chunk is queued, the second one finds the queue full
+        assertThatThrownBy(() -> service.introspect(tokens(jwtUtils, "dropped", 32)))
+                .isInstanceOf(ServiceOverloadedException.class);
+
+        // the queued chunk of the rejected batch gave its place back
+        CompletableFuture<?> next = service.introspect(List.of(jwtUtils.generateTokenFromUsername("next")));
+        release.countDown();
+        running.get(10, TimeUnit.SECONDS);
+        next.get(10, TimeUnit.SECONDS);
+        assertThat(droppedLoads.get()).isZero();
+    }
+
+    private List<String> tokens(JwtUtils jwtUtils, String prefix, int count) {
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            tokens.add(jwtUtils.generateTokenFromUsername(prefix + i));
+        }
+        return tokens;
+    }
+
+    private JwtUtils jwtUtils(boolean stateless, int expirationMs) {
+        return new JwtUtils(keyProvider, revocationList, new SimpleMeterRegistry(), expirationMs, stateless, 1000);
+    }
+
+    private TokenIntrospectionService service(JwtUtils jwtUtils, int threads, int maxBatchSize) {
+        TokenIntrospectionService service = new TokenIntrospectionService(jwtUtils, userDetailsService,
+                new SimpleMeterRegistry(), threads, 1, 1, maxBatchSize);
+        services.add(service);
+        return service;
+    }
+
+    private void revoke(JwtUtils jwtUtils, String token) {
+        Claims claims = jwtUtils.getClaimsFromJwt(token).orElseThrow();
+        revocationList.onInvalidation(InvalidationEvent.accessToken(claims.getId(), claims.getExpiration().toInstant()));
+        when(revokedTokenRepository.existsById(claims.getId())).thenReturn(true);
+    }
+
+    private static UserDetailsImpl user(String username, String role) {
+        return new UserDetailsImpl(1L, username, username + "@test.com", null,
+                Collections.singletonList(new SimpleGrantedAuthority(role)));
+    }
+}
@@ -0,0 +1,88 @@
+package com.anto.authservice.service;
+
+import com.anto.authservice.config.CacheConfig;
+import com.anto.authservice.model.User;
+import com.anto.authservice.service.invalidation.InvalidationEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * A username that matched no user is answered without a query until a signup event for it.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "app.cache.users.maximumSize=100",
+        "app.cache.users.ttlMs=60000",
+        "app.cache.unknownUsers.maximumSize=100",
+        "app.cache.unknownUsers.ttlMs=60000"
+})
+@Import({UserDetailsServiceImpl.class, CacheConfig.class, SimpleMeterRegistry.class})
+class UnknownUserCacheTest {
+
+    @Autowired
+    private UserDetailsServiceImpl userDetailsService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void repeatedLookupOfUnknownUsernameSkipsTheDatabase() {
+        for (int i = 0; i < 3; i++) {
+            assertThatThrownBy(() -> userDetailsService.loadUserByUsername("nobody"))
+                    .isInstanceOf(UsernameNotFoundException.class);
+        }
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void everyCasingOfAnUnknownUsernameSharesOneEntry() {
+        assertThatThrownBy(() -> userDetailsService.loadUserByUsername("Stranger"))
+                .isInstanceOf(UsernameNotFoundException.class);
+        assertThatThrownBy(() -> userDetailsService.loadUserByUsername("STRANGER"))
+                .isInstanceOf(UsernameNotFoundException.class);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+        entityManager.persist(new User("stranger", "stranger@test.com", "hash"));
+        entityManager.flush();
+        userDetailsService.onInvalidation(InvalidationEvent.user("stranger"));
+
+        assertThat(userDetailsService.loadUserByUsername("stranger").getUsername()).isEqualTo("stranger");
+    }
+
+    @Test
+    void signupEventEndsTheUnknownEntry() {
+        assertThatThrownBy(() -> userDetailsService.loadUserByUsername("latecomer"))
+                .isInstanceOf(UsernameNotFoundException.class);
+
+        entityManager.persist(new User("latecomer", "latecomer@test.com", "hash"));
+        entityManager.flush();
+        userDetailsService.onInvalidation(InvalidationEvent.user("latecomer"));
+
+        assertThat(userDetailsService.loadUserByUsername("latecomer").getUsername()).isEqualTo("latecomer");
+    }
+}
@@ -0,0 +1,64 @@
+package com.anto.authservice.service;
+
+import com.anto.authservice.config.CacheConfig;
+import com.anto.authservice.model.User;
+import com.anto.authservice.service.invalidation.InvalidationEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Cached user details are keyed by the lower-cased username, so an event naming the user in another casing still
+ * evicts them.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "app.cache.users.maximumSize=100",
+        "app.cache.users.ttlMs=60000",
+        "app.cache.unknownUsers.maximumSize=100",
+        "app.cache.unknownUsers.ttlMs=60000"
+})
+@Import({UserDetailsServiceImpl.class, CacheConfig.class, SimpleMeterRegistry.class})
+class UserDetailsCacheTest {
+
+    @Autowired
+    private UserDetailsServiceImpl userDetailsService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        entityManager.persist(new User("casing", "casing@test.com", "hash"));
+        entityManager.flush();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void eventInAnotherCasingEvictsTheCachedUser() {
+        userDetailsService.loadUserByUsername("casing");
+        userDetailsService.loadUserByUsername("casing");
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+        userDetailsService.onInvalidation(InvalidationEvent.user("CaSiNg"));
+        userDetailsService.loadUserByUsername("casing");
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,208 @@
+package com.anto.authservice.service;
+
+import com.anto.authservice.exception.ServiceOverloadedException;
+import com.anto.authservice.model.ERole;
+import com.anto.authservice.model.Role;
+import com.anto.authservice.model.payload.response.UserImportError;
+import com.anto.authservice.model.payload.response.UserImportResponse;
+import com.anto.authservice.repository.RoleRepository;
+import com.anto.authservice.repository.UserBatchRepository;
+import com.anto.authservice.service.invalidation.InvalidationBus;
+import com.anto.authservice.service.invalidation.InvalidationEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Imports commit chunk by chunk, like in production, so each test uses usernames of its own.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Import({UserBatchRepository.class, RoleRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UserImportServiceTest {
+
+    private final PasswordEncoder encoder = new BCryptPasswordEncoder(4);
+    private final InvalidationBus invalidationBus = mock(InvalidationBus.class);
+
+    @Autowired
+    private UserBatchRepository userBatchRepository;
+
+    @Autowired
+    private RoleRegistry roleRegistry;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        if (roleRepository.count() == 0) {
+            roleRepository.save(new Role(ERole.ROLE_USER));
+            roleRepository.save(new Role(ERole.ROLE_MODERATOR));
+            roleRegistry.reload();
+        }
+    }
+
+    @Test
+    void importsValidLinesAndReportsTheOthers() throws IOException {
+        importUsers(userImportService(userBatchRepository), line("taken", "taken@import.test", null));
+
+        UserImportResponse response = importUsers(userImportService(userBatchRepository),
+                line("ada", "ada@import.test", "[\"mod\",\"user\"]"),
+                "{not json",
+                "{\"username\":\"bo\",\"email\":\"bo@import.test\",\"password\":\"123456\"}",
+                line("cyd", "cyd@import.test", "[\"root\"]"),
+                "",
+                line("ADA", "other@import.test", null),
+                line("dee", "ADA@import.test", null),
+                line("taken", "new@import.test", null),
+                line("eve", "eve@import.test", null));
+
+        assertThat(response.getImported()).isEqualTo(2);
+        assertThat(response.getFailed()).isEqualTo(6);
+        assertThat(response.getErrors())
+                .extracting(UserImportError::getLine, UserImportError::getUsername, UserImportError::getMessage)
+                .containsExactly(
+                        tuple(2L, null, "Error: Line is not a valid signup request."),
+                        tuple(3L, "bo", "Bad request: [username: size must be between 3 and 20]"),
+                        tuple(4L, "cyd", "Invalid role: root"),
+                        tuple(6L, "ADA", "Error: Username is already taken!"),
+                        tuple(7L, "dee", "Error: Email is already in use!"),
+                        tuple(8L, "taken", "Error: Username is already taken!"));
+
+        assertThat(jdbcTemplate.queryForList("select r.name from users u join user_roles ur on ur.user_id = u.id " +
+                "join roles r on r.id = ur.role_id where u.username = 'ada' order by r.name", String.class))
+                .containsExactly("ROLE_MODERATOR", "ROLE_USER");
+        assertThat(encoder.matches("123456", jdbcTemplate.queryForObject(
+                "select password from users where username = 'eve'", String.class))).isTrue();
+        verify(invalidationBus, atLeastOnce()).publish(InvalidationEvent.usersImported());
+    }
+
+    @Test
+    void lineTakenByConcurrentSignupDoesNotFailItsChunk() throws IOException {
+        importUsers(userImportService(userBatchRepository), line("racer", "racer@import.test", null));
+        // as if the user signed up between the existence check and the insert
+        UserBatchRepository racingRepository = spy(userBatchRepository);
+        doReturn(List.of()).when(racingRepository).findByUsernameInOrEmailIn(any(), any());
+
+        UserImportResponse response = importUsers(userImportService(racingRepository),
+                line("fay", "fay@import.test", null),
+                line("racer", "racer2@import.test", null),
+                line("gus", "gus@import.test", null));
+
+        assertThat(response.getImported()).isEqualTo(2);
+        assertThat(response.getErrors())
+                .extracting(UserImportError::getLine, UserImportError::getMessage)
+                .containsExactly(tuple(2L, "Error: Username or email is already in use!"));
+        assertThat(jdbcTemplate.queryForObject("select count(*) from users where username in ('fay', 'gus')", Integer.class))
+                .isEqualTo(2);
+    }
+
+    @Test
+    void secondImportIsTurnedAwayWhileOneRuns() throws Exception {
+        UserImportService service = userImportService(userBatchRepository);
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        InputStream slowBody = new SequenceInputStream(new InputStream() {
+            @Override
+            public int read() throws IOException {
+                reading.countDown();
+                try {
+                    finish.await();
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+                return -1;
+            }
+        }, new ByteArrayInputStream(line("slow", "slow@import.test", null).getBytes(StandardCharsets.UTF_8)));
+        CompletableFuture<UserImportResponse> first = CompletableFuture.supplyAsync(() -> {
+            try {
+                return service.importUsers(slowBody);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        assertThat(reading.await(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThatThrownBy(() -> importUsers(service, line("eager", "eager@import.test", null)))
+                .isInstanceOfSatisfying(ServiceOverloadedException.class,
+                        e -> assertThat(e.getRetryAfterSeconds()).isEqualTo(30));
+
+        finish.countDown();
+        assertThat(first.get(10, TimeUnit.SECONDS).getImported()).isEqualTo(1);
+        assertThat(importUsers(service, line("eager", "eager@import.test", null)).getImported()).isEqualTo(1);
+    }
+
+    @Test
+    void linesPastTheLimitAreNotRead() throws IOException {
+        UserImportService service = new UserImportService(userBatchRepository, roleRegistry, encoder, invalidationBus,
+                transactionTemplate, new ObjectMapper(), Validation.buildDefaultValidatorFactory().getValidator(),
+                new SimpleMeterRegistry(), 2, 3, 1, 2, 30);
+
+        UserImportResponse response = importUsers(service,
+                line("hal", "hal@import.test", null),
+                "{\"username\":\"" + "x".repeat(20000) + "\"}",
+                line("ivy", "ivy@import.test", null),
+                line("jon", "jon@import.test", null));
+
+        assertThat(response.getImported()).isEqualTo(1);
+        assertThat(response.getErrors())
+                .extracting(UserImportError::getLine, UserImportError::getMessage)
+                .containsExactly(
+                        tuple(2L, "Error: Line is longer than 16384 characters."),
+                        tuple(3L, "Error: An import reads at most 2 lines, this one and the rest were not read."));
+    }
+
+    private UserImportService userImportService(UserBatchRepository repository) {
+        return new UserImportService(repository, roleRegistry, encoder, invalidationBus, transactionTemplate,
+                new ObjectMapper(), Validation.buildDefaultValidatorFactory().getValidator(), new SimpleMeterRegistry(),
+                2, 3, 1, 100000, 30);
+    }
+
+    private static UserImportResponse importUsers(UserImportService service, String... lines) throws IOException {
+        return service.importUsers(new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String line(String username, String email, String roles) {
+        return "{\"username\":\"" + username + "\",\"email\":\"" + email + "\",\"password\":\"123456\""
+                + (roles != null ? ",\"roles\":" + roles : "") + "}";
+    }
+}
@@ -0,0 +1,122 @@
+package com.anto.authservice.service;
+
+import com.anto.authservice.exception.ApiException;
+import com.anto.authservice.model.ERole;
+import com.anto.authservice.model.Role;
+import com.anto.authservice.model.User;
+import com.anto.authservice.model.payload.response.UserPageResponse;
+import com.anto.authservice.model.payload.response.UserSummary;
+import com.anto.authservice.repository.UserExportRepository;
+import com.anto.authservice.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import(UserExportRepository.class)
+class UserListingServiceTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserExportRepository userExportRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private UserListingService userListingService;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        Role userRole = new Role(ERole.ROLE_USER);
+        Role modRole = new Role(ERole.ROLE_MODERATOR);
+        entityManager.persist(userRole);
+        entityManager.persist(modRole);
+        for (String username : List.of("ann", "ben", "a_b", "axb", "cid")) {
+            User user = new User(username, username + "@test.com", "hash");
+            if (!username.equals("cid")) {
+                user.getRoles().add(userRole);
+            }
+            if (username.equals("ben")) {
+                user.getRoles().add(modRole);
+            }
+            entityManager.persist(user);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        userListingService = new UserListingService(userRepository, userExportRepository, new ObjectMapper());
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void pagesFollowEachOtherWithTwoQueriesEach() {
+        UserPageResponse first = userListingService.page(0, 2, null);
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(first.getUsers())
+                .extracting(UserSummary::getUsername, UserSummary::getRoles)
+                .containsExactly(tuple("ann", List.of("ROLE_USER")), tuple("ben", List.of("ROLE_MODERATOR", "ROLE_USER")));
+
+        List<String> usernames = new ArrayList<>();
+        UserPageResponse page = first;
+        while (page.getNextAfter() != null) {
+            page = userListingService.page(page.getNextAfter(), 2, null);
+            page.getUsers().forEach(user -> usernames.add(user.getUsername()));
+        }
+        assertThat(usernames).containsExactly("a_b", "axb", "cid");
+        assertThat(page.getUsers()).last().extracting(UserSummary::getRoles).isEqualTo(List.of());
+    }
+
+    @Test
+    void usernamePrefixMatchesWildcardsLiterally() {
+        assertThat(userListingService.page(0, 10, "a_").getUsers())
+                .extracting(UserSummary::getUsername)
+                .containsExactly("a_b");
+    }
+
+    @Test
+    void pageSizeIsBounded() {
+        assertThatThrownBy(() -> userListingService.page(0, UserListingService.MAX_PAGE_SIZE + 1, null))
+                .isInstanceOf(ApiException.class);
+    }
+
+    @Test
+    void exportWritesOneLinePerUserInIdOrder() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long written = userListingService.export(out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(written).isEqualTo(5);
+        assertThat(lines).hasSize(5);
+        assertThat(lines[1]).contains("\"username\":\"ben\"").contains("\"roles\":[\"ROLE_MODERATOR\",\"ROLE_USER\"]");
+        assertThat(lines[4]).contains("\"username\":\"cid\"").contains("\"roles\":[]");
+    }
+}
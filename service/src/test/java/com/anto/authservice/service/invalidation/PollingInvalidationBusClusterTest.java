@@ -0,0 +1,124 @@
+package com.anto.authservice.service.invalidation;
+
+import com.anto.authservice.Application;
+import com.anto.authservice.model.payload.request.SignupRequest;
+import com.anto.authservice.model.payload.request.UpdateRolesRequest;
+import com.anto.authservice.security.jwt.JwtUtils;
+import com.anto.authservice.service.AuthService;
+import com.anto.authservice.service.UserDetailsServiceImpl;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs three instances of the service in one JVM against one database, as replicas sharing MySQL would,
+ * and checks that a change made through one instance reaches the in-process state of the others.
+ */
+class PollingInvalidationBusClusterTest {
+
+    private static final String DATABASE_URL = "jdbc:h2:mem:cluster;MODE=MySQL;DB_CLOSE_DELAY=-1";
+    private static final long MAX_LAG_MS = 5_000;
+
+    private static final List<ConfigurableApplicationContext> nodes = new ArrayList<>();
+
+    @BeforeAll
+    static void startNodes() {
+        for (int i = 0; i < 3; i++) {
+            nodes.add(startNode(i == 0));
+        }
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        nodes.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    void roleChangeReachesTheUserCacheOfEveryNode() {
+        signup("alice");
+        // every node caches the user with its current roles
+        nodes.forEach(node -> assertThat(roles(node, "alice")).containsExactly("ROLE_USER"));
+
+        UpdateRolesRequest updateRolesRequest = new UpdateRolesRequest();
+        updateRolesRequest.setRoles(Set.of("mod"));
+        nodes.get(1).getBean(AuthService.class).updateRoles("alice", updateRolesRequest);
+
+        assertThat(roles(nodes.get(1), "alice")).containsExactly("ROLE_MODERATOR");
+        awaitOnEveryNode(node -> roles(node, "alice").equals(List.of("ROLE_MODERATOR")));
+    }
+
+    @Test
+    void signoutOnOneNodeRevokesTheTokenOnEveryNode() {
+        signup("bob");
+        String token = nodes.get(0).getBean(JwtUtils.class).generateTokenFromUsername("bob");
+        nodes.forEach(node -> assertThat(node.getBean(JwtUtils.class).getClaimsFromJwt(token)).isPresent());
+
+        nodes.get(2).getBean(AuthService.class).signout("Bearer " + token, null);
+
+        assertThat(nodes.get(2).getBean(JwtUtils.class).getClaimsFromJwt(token)).isEmpty();
+        awaitOnEveryNode(node -> node.getBean(JwtUtils.class).getClaimsFromJwt(token).isEmpty());
+    }
+
+    @Test
+    void nodeStartedLaterSeesEarlierChanges() {
+        signup("carol");
+        String token = nodes.get(0).getBean(JwtUtils.class).generateTokenFromUsername("carol");
+        nodes.get(0).getBean(AuthService.class).signout("Bearer " + token, null);
+
+        try (ConfigurableApplicationContext late = startNode(false)) {
+            assertThat(late.getBean(JwtUtils.class).getClaimsFromJwt(token)).isEmpty();
+        }
+    }
+
+    private static ConfigurableApplicationContext startNode(boolean createSchema) {
+        // as command line arguments, which take precedence over application.yml
+        return new SpringApplicationBuilder(Application.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=" + DATABASE_URL,
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.hibernate.ddl-auto=" + (createSchema ? "create" : "none"),
+                "--spring.jpa.show-sql=false",
+                "--app.invalidation.bus=jdbc",
+                "--app.invalidation.pollIntervalMs=100");
+    }
+
+    private static void signup(String username) {
+        SignupRequest signupRequest = new SignupRequest();
+        signupRequest.setUsername(username);
+        signupRequest.setEmail(username + "@test.com");
+        signupRequest.setPassword("123456");
+        nodes.get(0).getBean(AuthService.class).signup(signupRequest).join();
+    }
+
+    private static List<String> roles(ConfigurableApplicationContext node, String username) {
+        return node.getBean(UserDetailsServiceImpl.class).loadUserByUsername(username).getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .toList();
+    }
+
+    private static void awaitOnEveryNode(Predicate<ConfigurableApplicationContext> condition) {
+        long deadline = System.currentTimeMillis() + MAX_LAG_MS;
+        for (ConfigurableApplicationContext node : nodes) {
+            while (!condition.test(node)) {
+                assertThat(System.currentTimeMillis()).as("change visible within %d ms", MAX_LAG_MS).isLessThan(deadline);
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+    }
+}
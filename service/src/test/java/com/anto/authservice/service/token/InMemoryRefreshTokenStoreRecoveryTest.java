@@ -0,0 +1,232 @@
+package com.anto.authservice.service.token;
+
+import com.anto.authservice.service.UserDetailsImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import static com.anto.authservice.service.token.RefreshTokens.hash;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A crash is simulated by abandoning a store without closing it and recovering a new one from the same journal.
+ */
+class InMemoryRefreshTokenStoreRecoveryTest {
+
+    private static final Map<String, Long> USERS = Map.of("alice", 1L, "bob", 2L, "carol", 3L);
+
+    private final UserDetailsService userDetailsService = username -> {
+        Long id = USERS.get(username);
+        if (id == null) {
+            throw new UsernameNotFoundException(username);
+        }
+        return new UserDetailsImpl(id, username, username + "@test.com", null, List.of());
+    };
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void flushedTokensSurviveACrash() throws IOException {
+        InMemoryRefreshTokenStore crashed = store();
+        crashed.create(entry("token-a", "alice"));
+        crashed.create(entry("token-b", "bob"));
+        crashed.flushJournal();
+
+        InMemoryRefreshTokenStore recovered = store();
+
+        assertThat(recovered.size()).isEqualTo(2);
+        assertThat(recovered.findOwner(hash("token-a"))).map(owner -> owner.user().getUsername()).contains("alice");
+        assertThat(recovered.findOwner(hash("token-b"))).map(owner -> owner.user().getId()).contains(2L);
+    }
+
+    @Test
+    void tokensIssuedAfterTheLastFlushAreLost() throws IOException {
+        InMemoryRefreshTokenStore crashed = store();
+        crashed.create(entry("token-a", "alice"));
+        crashed.flushJournal();
+        crashed.create(entry("token-b", "bob"));
+
+        InMemoryRefreshTokenStore recovered = store();
+
+        assertThat(recovered.findOwner(hash("token-a"))).isPresent();
+        assertThat(recovered.findOwner(hash("token-b"))).isEmpty();
+    }
+
+    @Test
+    void rotatedAndDeletedTokensStayGone() throws IOException {
+        InMemoryRefreshTokenStore crashed = store();
+        crashed.create(entry("token-a1", "alice"));
+        crashed.rotate(hash("token-a1"), hash("token-a2"));
+        crashed.create(entry("token-b", "bob"));
+        crashed.create(entry("token-c", "carol"));
+        crashed.delete(hash("token-b"));
+        crashed.delete(hash("token-c"));
+        crashed.flushJournal();
+
+        InMemoryRefreshTokenStore recovered = store();
+
+        assertThat(recovered.size()).isEqualTo(1);
+        assertThat(recovered.findOwner(hash("token-a2"))).isPresent();
+        assertThat(recovered.findOwner(hash("token-a1"))).isEmpty();
+        assertThat(recovered.findOwner(hash("token-b"))).isEmpty();
+        assertThat(recovered.findOwner(hash("token-c"))).isEmpty();
+    }
+
+    @Test
+    void recoveredSessionKeepsItsGeneration() throws IOException {
+        InMemoryRefreshTokenStore crashed = store();
+        crashed.create(entry("token-a1", "alice"));
+        crashed.rotate(hash("token-a1"), hash("token-a2"));
+        crashed.create(entry("token-a3", "alice"));
+        crashed.flushJournal();
+
+        InMemoryRefreshTokenStore recovered = store();
+
+        assertThat(recovered.size()).isEqualTo(2);
+        assertThat(recovered.findOwner(hash("token-a2"))).map(RefreshTokenOwner::generation).contains(1);
+        assertThat(recovered.rotate(hash("token-a1"), hash("token-a4"))).isFalse();
+        assertThat(recovered.rotate(hash("token-a2"), hash("token-a4"))).isTrue();
+        assertThat(recovered.findOwner(hash("token-a4"))).map(RefreshTokenOwner::generation).contains(2);
+    }
+
+    @Test
+    void revokedSessionStaysRevoked() throws IOException {
+        InMemoryRefreshTokenStore crashed = store();
+        RefreshTokenEntry session = entry("token-a1", "alice");
+        crashed.create(session);
+        crashed.create(entry("token-b", "bob"));
+        crashed.rotate(hash("token-a1"), hash("token-a2"));
+        // the first token shows up again
+        assertThat(crashed.revokeFamily(session.familyId(), 0)).isTrue();
+        crashed.flushJournal();
+
+        InMemoryRefreshTokenStore recovered = store();
+
+        assertThat(recovered.size()).isEqualTo(1);
+        assertThat(recovered.findOwner(hash("token-a2"))).isEmpty();
+        assertThat(recovered.findOwner(hash("token-b"))).isPresent();
+    }
+
+    @Test
+    void tornRecordAtTheEndIsDropped() throws IOException {
+        InMemoryRefreshTokenStore crashed = store();
+        crashed.create(entry("token-a", "alice"));
+        crashed.create(entry("token-b", "bob"));
+        crashed.flushJournal();
+        byte[] journal = Files.readAllBytes(journalFile());
+        // the process died halfway through writing another record: a length prefix and part of its payload
+        Files.write(journalFile(), new byte[]{0, 0, 0, 40, 1, 2, 3, 4, 'P', 0}, StandardOpenOption.APPEND);
+
+        InMemoryRefreshTokenStore recovered = store();
+
+        assertThat(recovered.size()).isEqualTo(2);
+        assertThat(Files.size(journalFile())).isEqualTo(journal.length);
+
+        recovered.create(entry("token-c", "carol"));
+        recovered.flushJournal();
+        assertThat(store().findOwner(hash("token-c"))).isPresent();
+    }
+
+    @Test
+    void corruptRecordStopsTheReplay() throws IOException {
+        InMemoryRefreshTokenStore crashed = store();
+        crashed.create(entry("token-a", "alice"));
+        crashed.flushJournal();
+        long intactLength = Files.size(journalFile());
+        crashed.create(entry("token-b", "bob"));
+        crashed.flushJournal();
+        byte[] journal = Files.readAllBytes(journalFile());
+        journal[journal.length - 3] ^= 0x55;
+        Files.write(journalFile(), journal);
+
+        InMemoryRefreshTokenStore recovered = store();
+
+        assertThat(recovered.findOwner(hash("token-a"))).isPresent();
+        assertThat(recovered.findOwner(hash("token-b"))).isEmpty();
+        assertThat(Files.size(journalFile())).isEqualTo(intactLength);
+    }
+
+    @Test
+    void expiredTokensAreNotRecovered() throws IOException {
+        InMemoryRefreshTokenStore crashed = store();
+        crashed.create(new RefreshTokenEntry(hash("token-a"), RefreshTokens.newFamilyId(), 0, 1L, "alice",
+                Instant.now().minus(1, ChronoUnit.MINUTES)));
+        crashed.create(entry("token-b", "bob"));
+        crashed.flushJournal();
+
+        InMemoryRefreshTokenStore recovered = store();
+
+        assertThat(recovered.size()).isEqualTo(1);
+        assertThat(recovered.findOwner(hash("token-b"))).isPresent();
+    }
+
+    @Test
+    void journalIsCompactedOnceMostRecordsAreObsolete() throws IOException {
+        InMemoryRefreshTokenStore store = store();
+        store.create(entry("token-a0", "alice"));
+        for (int i = 1; i < 6_000; i++) {
+            store.rotate(hash("token-a" + (i - 1)), hash("token-a" + i));
+        }
+        store.flushJournal();
+        store.create(entry("token-b", "bob"));
+        store.flushJournal();
+
+        assertThat(Files.size(journalFile())).isLessThan(1_000);
+        InMemoryRefreshTokenStore recovered = store();
+        assertThat(recovered.size()).isEqualTo(2);
+        assertThat(recovered.findOwner(hash("token-a5999"))).isPresent();
+        assertThat(recovered.findOwner(hash("token-b"))).isPresent();
+    }
+
+    @Test
+    void plaintextRecordsFromBeforeHashingAreHashedOnReplay() throws IOException {
+        ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream();
+        DataOutputStream payload = new DataOutputStream(payloadBytes);
+        payload.writeByte('P');
+        payload.writeUTF("d85c5c12-363b-4a9c-8ac8-98823716ec1e");
+        payload.writeLong(1L);
+        payload.writeUTF("alice");
+        payload.writeLong(Instant.now().plus(1, ChronoUnit.HOURS).toEpochMilli());
+        byte[] bytes = payloadBytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        DataOutputStream journal = new DataOutputStream(Files.newOutputStream(journalFile()));
+        journal.writeInt(bytes.length);
+        journal.writeInt((int) crc.getValue());
+        journal.write(bytes);
+        journal.close();
+
+        InMemoryRefreshTokenStore recovered = store();
+
+        assertThat(recovered.findOwner(hash("d85c5c12-363b-4a9c-8ac8-98823716ec1e"))).isPresent();
+        assertThat(new String(Files.readAllBytes(journalFile()), StandardCharsets.ISO_8859_1)).doesNotContain("d85c5c12");
+    }
+
+    private InMemoryRefreshTokenStore store() throws IOException {
+        return new InMemoryRefreshTokenStore(userDetailsService, 4, journalFile().toString());
+    }
+
+    private Path journalFile() {
+        return directory.resolve("refresh-tokens.journal");
+    }
+
+    private static RefreshTokenEntry entry(String token, String username) {
+        return new RefreshTokenEntry(hash(token), RefreshTokens.newFamilyId(), 0, USERS.get(username), username,
+                Instant.now().plus(1, ChronoUnit.HOURS));
+    }
+}